@@ -0,0 +1,223 @@
+package com.alibaba.alib.lang;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import static com.alibaba.alib.lang.Utf8Utils.BYTE_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.CHAR_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.UNSAFE;
+
+/**
+ * Table driven GBK and GB18030 decoders. The lookup tables are built from the JDK charsets
+ * when first used, so the mapping is exactly the one of the running JDK.
+ *
+ * ASCII, two byte and four byte sequences are decoded in place; on the first malformed or
+ * unmappable sequence the rest of the input is handed to the JDK decoder, so the result,
+ * U+FFFD replacements included, is always the same as new String(bytes, charset).
+ *
+ * The char array passed to decode methods must have room for len chars after dp.
+ */
+public class GBKUtils {
+    final static Charset GBK = Charset.forName("GBK");
+    final static Charset GB18030 = Charset.forName("GB18030");
+
+    // lead byte 0x81 - 0xfe, trail byte 0x40 - 0xfe
+    final static int TRAIL_MIN = 0x40;
+    final static int TRAIL_COUNT = 0xff - TRAIL_MIN;
+
+    // four byte sequences 0x81308130 - 0x8431a439 map to BMP chars
+    final static int FOUR_BYTE_BMP_COUNT = 39420;
+    final static int FOUR_BYTE_SUPPLEMENTARY_OFFSET = 189000; // linear index of 0x90308130
+
+    public static int decodeGBK(byte[] sa, int sp, int len, char[] da, int dp) {
+        final char[] table = GBKTable.DOUBLE_BYTE;
+
+        long usp = BYTE_ARRAY_BASE_OFFSET + sp;
+        final long usl = usp + len;
+        long udp = CHAR_ARRAY_BASE_OFFSET + (dp * 2);
+
+        while (usp < usl) {
+            int b1 = UNSAFE.getByte(sa, usp);
+            if (b1 >= 0) {
+                UNSAFE.putChar(da, udp, (char) b1);
+                usp++;
+                udp += 2;
+                continue;
+            }
+
+            b1 &= 0xff;
+            if (b1 != 0x80 && b1 != 0xff && usp + 1 < usl) {
+                int b2 = UNSAFE.getByte(sa, usp + 1) & 0xff;
+                if (b2 >= TRAIL_MIN && b2 != 0xff) {
+                    char c = table[(b1 - 0x81) * TRAIL_COUNT + (b2 - TRAIL_MIN)];
+                    if (c != 0) {
+                        UNSAFE.putChar(da, udp, c);
+                        usp += 2;
+                        udp += 2;
+                        continue;
+                    }
+                }
+            }
+
+            return decodeRemaining(GBK, sa, usp, usl, da, udp);
+        }
+
+        return (int) ((udp - CHAR_ARRAY_BASE_OFFSET) / 2);
+    }
+
+    public static String decodeGBK(byte[] sa, int sp, int len) {
+        char[] da = new char[len];
+        int dp = decodeGBK(sa, sp, len, da, 0);
+        return new String(da, 0, dp);
+    }
+
+    public static int decodeGB18030(byte[] sa, int sp, int len, char[] da, int dp) {
+        final char[] table2 = GB18030Table.DOUBLE_BYTE;
+        final char[] table4 = GB18030Table.FOUR_BYTE_BMP;
+
+        long usp = BYTE_ARRAY_BASE_OFFSET + sp;
+        final long usl = usp + len;
+        long udp = CHAR_ARRAY_BASE_OFFSET + (dp * 2);
+
+        while (usp < usl) {
+            int b1 = UNSAFE.getByte(sa, usp);
+            if (b1 >= 0) {
+                UNSAFE.putChar(da, udp, (char) b1);
+                usp++;
+                udp += 2;
+                continue;
+            }
+
+            b1 &= 0xff;
+            if (b1 != 0x80 && b1 != 0xff && usp + 1 < usl) {
+                int b2 = UNSAFE.getByte(sa, usp + 1) & 0xff;
+                if (b2 >= TRAIL_MIN && b2 != 0xff) {
+                    char c = table2[(b1 - 0x81) * TRAIL_COUNT + (b2 - TRAIL_MIN)];
+                    if (c != 0) {
+                        UNSAFE.putChar(da, udp, c);
+                        usp += 2;
+                        udp += 2;
+                        continue;
+                    }
+                } else if (b2 >= 0x30 && b2 <= 0x39 && usp + 3 < usl) {
+                    int b3 = UNSAFE.getByte(sa, usp + 2) & 0xff;
+                    int b4 = UNSAFE.getByte(sa, usp + 3) & 0xff;
+                    if (b3 >= 0x81 && b3 != 0xff && b4 >= 0x30 && b4 <= 0x39) {
+                        int linear = (((b1 - 0x81) * 10 + (b2 - 0x30)) * 126 + (b3 - 0x81)) * 10 + (b4 - 0x30);
+                        if (linear < FOUR_BYTE_BMP_COUNT) {
+                            char c = table4[linear];
+                            if (c != 0) {
+                                UNSAFE.putChar(da, udp, c);
+                                usp += 4;
+                                udp += 2;
+                                continue;
+                            }
+                        } else if (linear >= FOUR_BYTE_SUPPLEMENTARY_OFFSET) {
+                            int uc = 0x10000 + linear - FOUR_BYTE_SUPPLEMENTARY_OFFSET;
+                            if (uc <= 0x10FFFF) {
+                                UNSAFE.putChar(da, udp, (char) ((uc >>> 10) + ('\uD800' - (0x010000 >>> 10)))); // Character.highSurrogate(uc);
+                                UNSAFE.putChar(da, udp + 2, (char) ((uc & 0x3ff) + '\uDC00')); // Character.lowSurrogate(uc);
+                                usp += 4;
+                                udp += 4;
+                                continue;
+                            }
+                        }
+                    }
+                }
+            }
+
+            return decodeRemaining(GB18030, sa, usp, usl, da, udp);
+        }
+
+        return (int) ((udp - CHAR_ARRAY_BASE_OFFSET) / 2);
+    }
+
+    public static String decodeGB18030(byte[] sa, int sp, int len) {
+        char[] da = new char[len];
+        int dp = decodeGB18030(sa, sp, len, da, 0);
+        return new String(da, 0, dp);
+    }
+
+    /**
+     * Slow path for malformed or unmappable input, starting at a sequence boundary.
+     */
+    private static int decodeRemaining(Charset charset, byte[] sa, long usp, long usl, char[] da, long udp) {
+        int sp = (int) (usp - BYTE_ARRAY_BASE_OFFSET);
+        int dp = (int) ((udp - CHAR_ARRAY_BASE_OFFSET) / 2);
+
+        String rest = new String(sa, sp, (int) (usl - usp), charset);
+        rest.getChars(0, rest.length(), da, dp);
+        return dp + rest.length();
+    }
+
+    /**
+     * Decodes every valid two byte sequence with the JDK decoder, 0 marks unmappable ones.
+     */
+    static char[] buildDoubleByteTable(Charset charset) {
+        CharsetDecoder decoder = newDecoder(charset);
+        ByteBuffer in = ByteBuffer.allocate(2);
+        CharBuffer out = CharBuffer.allocate(2);
+
+        char[] table = new char[(0xff - 0x81) * TRAIL_COUNT];
+        for (int b1 = 0x81; b1 < 0xff; ++b1) {
+            for (int b2 = TRAIL_MIN; b2 < 0xff; ++b2) {
+                in.clear();
+                in.put((byte) b1).put((byte) b2).flip();
+                table[(b1 - 0x81) * TRAIL_COUNT + (b2 - TRAIL_MIN)] = decodeSingleChar(decoder, in, out);
+            }
+        }
+        return table;
+    }
+
+    static char[] buildFourByteTable(Charset charset) {
+        CharsetDecoder decoder = newDecoder(charset);
+        ByteBuffer in = ByteBuffer.allocate(4);
+        CharBuffer out = CharBuffer.allocate(2);
+
+        char[] table = new char[FOUR_BYTE_BMP_COUNT];
+        for (int linear = 0; linear < FOUR_BYTE_BMP_COUNT; ++linear) {
+            int b4 = 0x30 + linear % 10;
+            int b3 = 0x81 + linear / 10 % 126;
+            int b2 = 0x30 + linear / 1260 % 10;
+            int b1 = 0x81 + linear / 12600;
+            in.clear();
+            in.put((byte) b1).put((byte) b2).put((byte) b3).put((byte) b4).flip();
+            table[linear] = decodeSingleChar(decoder, in, out);
+        }
+        return table;
+    }
+
+    private static CharsetDecoder newDecoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    private static char decodeSingleChar(CharsetDecoder decoder, ByteBuffer in, CharBuffer out) {
+        decoder.reset();
+        out.clear();
+        CoderResult result = decoder.decode(in, out, true);
+        if (result.isError() || in.hasRemaining()) {
+            return 0;
+        }
+        result = decoder.flush(out);
+        if (result.isError() || out.position() != 1) {
+            return 0;
+        }
+        char c = out.get(0);
+        return c == '\uFFFD' ? 0 : c;
+    }
+
+    static class GBKTable {
+        final static char[] DOUBLE_BYTE = buildDoubleByteTable(GBK);
+    }
+
+    static class GB18030Table {
+        final static char[] DOUBLE_BYTE = buildDoubleByteTable(GB18030);
+        final static char[] FOUR_BYTE_BMP = buildFourByteTable(GB18030);
+    }
+}
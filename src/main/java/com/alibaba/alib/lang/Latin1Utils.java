@@ -0,0 +1,155 @@
+package com.alibaba.alib.lang;
+
+import static com.alibaba.alib.lang.Utf8Utils.BYTES;
+import static com.alibaba.alib.lang.Utf8Utils.BYTE_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.CHAR_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.STRING_VALUE_CODE;
+import static com.alibaba.alib.lang.Utf8Utils.STRING_VALUE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.UNSAFE;
+
+/**
+ * ISO-8859-1 (Latin-1) decoding, encoding and transcoding to and from UTF-8.
+ *
+ * Chars above U+00FF are encoded as '?', a surrogate pair as a single '?', the same as the
+ * JDK encoder does.
+ */
+public class Latin1Utils {
+
+    public static int decodeLatin1(byte[] sa, int sp, int len, char[] da, int dp) {
+        long usp = BYTE_ARRAY_BASE_OFFSET + sp;
+        final long usl = usp + len;
+        long udp = CHAR_ARRAY_BASE_OFFSET + (dp * 2);
+
+        for (; usp < usl; usp++, udp += 2) {
+            UNSAFE.putChar(da, udp, (char) (UNSAFE.getByte(sa, usp) & 0xff));
+        }
+        return dp + len;
+    }
+
+    @SuppressWarnings("deprecation")
+    public static String decodeLatin1(byte[] sa, int sp, int len) {
+        // hibyte 0 is exactly Latin-1, JDK 9+ copies the bytes into a compact string as is
+        return new String(sa, 0, sp, len);
+    }
+
+    /**
+     * @return position in dest after the last written byte
+     */
+    public static int encodeLatin1(char[] chars, int off, int len, byte[] dest, int dp) {
+        return encodeLatin1Internal(chars, off, len, dest, dp);
+    }
+
+    public static int encodeLatin1(String str, byte[] dest, int dp) {
+        if (STRING_VALUE_OFFSET == -1) {
+            char[] chars = str.toCharArray();
+            return encodeLatin1Internal(chars, 0, chars.length, dest, dp);
+        }
+
+        Object value = UNSAFE.getObject(str, STRING_VALUE_OFFSET);
+        if (BYTES) { // support JDK 9/10/11
+            byte[] bytes = (byte[]) value;
+            byte code = UNSAFE.getByte(str, STRING_VALUE_CODE);
+            if (code == 0) { // latin1
+                System.arraycopy(bytes, 0, dest, dp, bytes.length);
+                return dp + bytes.length;
+            }
+            // utf16
+            return encodeLatin1Internal(bytes, 0, bytes.length / 2, dest, dp);
+        } else {
+            char[] chars = (char[]) value;
+            return encodeLatin1Internal(chars, 0, chars.length, dest, dp);
+        }
+    }
+
+    static int encodeLatin1Internal(Object chars, int off, int len, byte[] dest, int dp) {
+        long usp = CHAR_ARRAY_BASE_OFFSET + off * 2;
+        final long usl = usp + len * 2;
+        long udp = BYTE_ARRAY_BASE_OFFSET + dp;
+
+        while (usp < usl) {
+            char c = UNSAFE.getChar(chars, usp);
+            usp += 2;
+            if (c <= 0xff) {
+                UNSAFE.putByte(dest, udp++, (byte) c);
+                continue;
+            }
+
+            if (c >= '\uD800' && c < '\uDC00' && usp < usl) { // Character.isHighSurrogate(c)
+                char d = UNSAFE.getChar(chars, usp);
+                if (d >= '\uDC00' && d < '\uE000') { // Character.isLowSurrogate(d)
+                    usp += 2;
+                }
+            }
+            UNSAFE.putByte(dest, udp++, (byte) '?');
+        }
+        return (int) (udp - BYTE_ARRAY_BASE_OFFSET);
+    }
+
+    /**
+     * Transcodes Latin-1 bytes to UTF-8, dest needs room for len * 2 bytes.
+     * @return position in dest after the last written byte
+     */
+    public static int latin1ToUTF8(byte[] sa, int sp, int len, byte[] dest, int dp) {
+        return Utf8Utils.encodeLatin1(sa, sp, len, dest, dp);
+    }
+
+    /**
+     * Transcodes UTF-8 bytes to Latin-1, replacing chars above U+00FF with '?'.
+     * @return position in dest after the last written byte, or -1 if input is malformed
+     */
+    public static int utf8ToLatin1(byte[] sa, int sp, int len, byte[] dest, int dp) {
+        long usp = BYTE_ARRAY_BASE_OFFSET + sp;
+        final long usl = usp + len;
+        long udp = BYTE_ARRAY_BASE_OFFSET + dp;
+
+        while (usp < usl) {
+            byte b1 = UNSAFE.getByte(sa, usp++);
+            if (b1 >= 0) {
+                // 1 byte, 7 bits: 0xxxxxxx
+                UNSAFE.putByte(dest, udp++, b1);
+            } else if ((b1 >> 5) == -2 && (b1 & 0x1e) != 0) {
+                // 2 bytes, 11 bits: 110xxxxx 10xxxxxx
+                if (usp >= usl) {
+                    return -1;
+                }
+                byte b2 = UNSAFE.getByte(sa, usp++);
+                if ((b2 & 0xc0) != 0x80) { // isNotContinuation(b2)
+                    return -1;
+                }
+                int c = ((b1 & 0x1f) << 6) | (b2 & 0x3f);
+                UNSAFE.putByte(dest, udp++, c <= 0xff ? (byte) c : (byte) '?');
+            } else if ((b1 >> 4) == -2) {
+                // 3 bytes, 16 bits: 1110xxxx 10xxxxxx 10xxxxxx, never Latin-1
+                if (usp + 1 >= usl) {
+                    return -1;
+                }
+                int b2 = UNSAFE.getByte(sa, usp++);
+                int b3 = UNSAFE.getByte(sa, usp++);
+                if ((b1 == (byte) 0xe0 && (b2 & 0xe0) == 0x80) //
+                        || (b2 & 0xc0) != 0x80 //
+                        || (b3 & 0xc0) != 0x80 // isMalformed3(b1, b2, b3)
+                        || (b1 == (byte) 0xed && (b2 & 0xe0) == 0xa0)) { // surrogate
+                    return -1;
+                }
+                UNSAFE.putByte(dest, udp++, (byte) '?');
+            } else if ((b1 >> 3) == -2) {
+                // 4 bytes, 21 bits: 11110xxx 10xxxxxx 10xxxxxx 10xxxxxx, one '?' for the pair
+                if (usp + 2 >= usl) {
+                    return -1;
+                }
+                int b2 = UNSAFE.getByte(sa, usp++);
+                int b3 = UNSAFE.getByte(sa, usp++);
+                int b4 = UNSAFE.getByte(sa, usp++);
+                int uc = ((b1 & 0x07) << 18) | ((b2 & 0x3f) << 12) | ((b3 & 0x3f) << 6) | (b4 & 0x3f);
+                if (((b2 & 0xc0) != 0x80 || (b3 & 0xc0) != 0x80 || (b4 & 0xc0) != 0x80) // isMalformed4
+                        || !(uc >= 0x010000 && uc < 0X10FFFF + 1)) { // !Character.isSupplementaryCodePoint(uc)
+                    return -1;
+                }
+                UNSAFE.putByte(dest, udp++, (byte) '?');
+            } else {
+                return -1;
+            }
+        }
+        return (int) (udp - BYTE_ARRAY_BASE_OFFSET);
+    }
+}
@@ -0,0 +1,250 @@
+package com.alibaba.alib.lang;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A column of strings encoded as UTF-8 into one contiguous byte array, Arrow style:
+ * value i occupies bytes [offsets[i], offsets[i + 1]) and offsets has size() + 1 entries.
+ *
+ * Values are decoded lazily by {@link #get(int)}, or all at once, optionally in parallel
+ * chunks, by {@link #decode()} and {@link #decode(ForkJoinPool, int)}. Null values are not
+ * supported; a malformed value fails decoding with an {@link IllegalStateException}.
+ */
+public class Utf8Column {
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final int size;
+
+    /**
+     * Wraps already encoded data, nothing is copied.
+     * @param bytes UTF-8 encoded values
+     * @param offsets value boundaries, at least size + 1 non-decreasing entries from 0
+     * @param size number of values
+     */
+    public Utf8Column(byte[] bytes, int[] offsets, int size) {
+        if (size < 0 || offsets.length < size + 1 || offsets[0] < 0 || offsets[size] > bytes.length) {
+            throw new IllegalArgumentException("size " + size + ", offsets " + offsets.length + ", bytes " + bytes.length);
+        }
+        for (int i = 0; i < size; ++i) {
+            if (offsets[i + 1] < offsets[i]) {
+                throw new IllegalArgumentException("decreasing offsets at index " + i + " : " + offsets[i] + ", " + offsets[i + 1]);
+            }
+        }
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    public static Utf8Column encode(String[] values) {
+        return encode(values, 0, values.length);
+    }
+
+    public static Utf8Column encode(String[] values, int from, int to) {
+        int size = to - from;
+        int[] offsets = new int[size + 1];
+
+        long chars = 0;
+        for (int i = from; i < to; ++i) {
+            chars += values[i].length();
+        }
+        byte[] bytes = new byte[initialCapacity(chars)];
+
+        int dp = 0;
+        for (int i = from; i < to; ++i) {
+            String value = values[i];
+            int max = value.length() * 3;
+            if (dp + max > bytes.length) {
+                bytes = grow(bytes, dp, dp + max);
+            }
+            dp = Utf8Utils.encodeUTF8(value, bytes, dp);
+            offsets[i - from + 1] = dp;
+        }
+
+        return new Utf8Column(bytes, offsets, size);
+    }
+
+    public static Utf8Column encode(List<String> values) {
+        // copying the references costs little next to encoding the values
+        String[] array = values.toArray(new String[values.size()]);
+        return encode(array, 0, array.length);
+    }
+
+    private static int initialCapacity(long chars) {
+        // enough for ASCII and most latin text, CJK grows once or twice
+        long capacity = chars + (chars >> 2) + 16;
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("column too large : " + chars + " chars");
+        }
+        return (int) capacity;
+    }
+
+    private static byte[] grow(byte[] bytes, int length, int minCapacity) {
+        long capacity = Math.max((long) bytes.length * 2, minCapacity);
+        if (capacity > Integer.MAX_VALUE - 8) {
+            if (minCapacity > Integer.MAX_VALUE - 8 || minCapacity < 0) {
+                throw new IllegalArgumentException("column too large : " + minCapacity + " bytes");
+            }
+            capacity = Integer.MAX_VALUE - 8;
+        }
+        byte[] newBytes = new byte[(int) capacity];
+        System.arraycopy(bytes, 0, newBytes, 0, length);
+        return newBytes;
+    }
+
+    /**
+     * @return a number of values in this column
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return encoded values; only the first {@link #byteLength()} bytes are meaningful
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * @return a number of bytes used by all values
+     */
+    public int byteLength() {
+        return offsets[size];
+    }
+
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @return encoded length of value in bytes
+     */
+    public int length(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * Decodes a single value.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        int off = offsets[index];
+        int len = offsets[index + 1] - off;
+        if (len == 0) {
+            return "";
+        }
+        char[] chars = new char[len];
+        int dp = Utf8Utils.decodeUTF8_unsafe(bytes, off, len, chars, 0);
+        if (dp == -1) {
+            throw new IllegalStateException("malformed UTF-8 value at index " + index);
+        }
+        return new String(chars, 0, dp);
+    }
+
+    /**
+     * Points slice to a value without decoding it.
+     * @return slice
+     */
+    public Utf8Slice slice(int index, Utf8Slice slice) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        int off = offsets[index];
+        return slice.wrap(bytes, off, offsets[index + 1] - off);
+    }
+
+    /**
+     * Decodes all values in the calling thread.
+     */
+    public String[] decode() {
+        String[] values = new String[size];
+        decode(values, 0, size);
+        return values;
+    }
+
+    /**
+     * Decodes all values in the common pool, 4096 values per task.
+     */
+    public String[] decodeParallel() {
+        return decode(ForkJoinPool.commonPool(), 4096);
+    }
+
+    /**
+     * Decodes all values, splitting the column into tasks of at most chunkSize values.
+     */
+    public String[] decode(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize " + chunkSize);
+        }
+        String[] values = new String[size];
+        if (size <= chunkSize) {
+            decode(values, 0, size);
+        } else {
+            pool.invoke(new DecodeTask(values, 0, size, chunkSize));
+        }
+        return values;
+    }
+
+    /**
+     * Decodes values [from, to) into dest at the same indexes.
+     */
+    public void decode(String[] dest, int from, int to) {
+        int maxLen = 0;
+        for (int i = from; i < to; ++i) {
+            int len = offsets[i + 1] - offsets[i];
+            if (len > maxLen) {
+                maxLen = len;
+            }
+        }
+
+        // one scratch buffer per chunk instead of one char[] per value
+        char[] chars = new char[maxLen];
+        for (int i = from; i < to; ++i) {
+            int off = offsets[i];
+            int len = offsets[i + 1] - off;
+            if (len == 0) {
+                dest[i] = "";
+                continue;
+            }
+            int dp = Utf8Utils.decodeUTF8_unsafe(bytes, off, len, chars, 0);
+            if (dp == -1) {
+                throw new IllegalStateException("malformed UTF-8 value at index " + i);
+            }
+            dest[i] = new String(chars, 0, dp);
+        }
+    }
+
+    private final class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] dest;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        DecodeTask(String[] dest, int from, int to, int chunkSize) {
+            this.dest = dest;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                decode(dest, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecodeTask(dest, from, mid, chunkSize)
+                    , new DecodeTask(dest, mid, to, chunkSize));
+        }
+    }
+}
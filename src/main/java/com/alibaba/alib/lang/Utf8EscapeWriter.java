@@ -0,0 +1,384 @@
+package com.alibaba.alib.lang;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static com.alibaba.alib.lang.Utf8Utils.BYTES;
+import static com.alibaba.alib.lang.Utf8Utils.BYTE_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.CHAR_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.STRING_VALUE_CODE;
+import static com.alibaba.alib.lang.Utf8Utils.STRING_VALUE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.UNSAFE;
+
+/**
+ * Escapes strings and encodes them as UTF-8 in one pass into a growable byte buffer, for
+ * building JSON or CSV records without an escaped intermediate String.
+ *
+ * In {@link Mode#JSON} a string is written quoted, with '"', '\\' and control chars
+ * escaped. In {@link Mode#CSV} a field is quoted only when it contains the separator,
+ * '"', CR or LF, with '"' doubled, as in RFC 4180. Unpaired surrogates are written as
+ * '?', the same as the JDK encoder does.
+ *
+ * The buffer is kept across {@link #reset()}, so a writer reused per thread does not
+ * allocate in steady state. Not thread safe.
+ */
+public final class Utf8EscapeWriter {
+    public enum Mode {
+        JSON, CSV
+    }
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private final Mode mode;
+    // per ASCII char, 0 if written as is, else the JSON escape char or the CSV char itself
+    private final byte[] escapes = new byte[128];
+    // the two printable ASCII chars needing an escape, repeated in every byte
+    private long special1;
+    private long special2;
+    private int maxBytesPerChar;
+
+    private byte[] bytes;
+    private int size;
+    private boolean quoted;
+
+    public Utf8EscapeWriter(Mode mode) {
+        this(mode, 256);
+    }
+
+    public Utf8EscapeWriter(Mode mode, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        this.mode = mode;
+        this.bytes = new byte[capacity];
+
+        if (mode == Mode.JSON) {
+            for (int c = 0; c < 0x20; ++c) {
+                escapes[c] = 'u';
+            }
+            escapes['\b'] = 'b';
+            escapes['\f'] = 'f';
+            escapes['\n'] = 'n';
+            escapes['\r'] = 'r';
+            escapes['\t'] = 't';
+            escapes['"'] = '"';
+            escapes['\\'] = '\\';
+            special1 = '"' * ONES;
+            special2 = '\\' * ONES;
+            // backslash, 'u' and 4 hex digits
+            maxBytesPerChar = 6;
+        } else {
+            escapes['\r'] = '\r';
+            escapes['\n'] = '\n';
+            escapes['"'] = '"';
+            // 3 bytes for a BMP char
+            maxBytesPerChar = 3;
+            setSeparator(',');
+        }
+    }
+
+    /**
+     * Sets the CSV field separator, ',' by default.
+     */
+    public void setSeparator(char separator) {
+        if (mode != Mode.CSV) {
+            throw new IllegalStateException("separator of mode " + mode);
+        }
+        if (separator >= 0x80 || separator == '"' || separator == '\r' || separator == '\n') {
+            throw new IllegalArgumentException("separator " + (int) separator);
+        }
+        for (int c = 0; c < 0x80; ++c) {
+            if (c != '"' && c != '\r' && c != '\n') {
+                escapes[c] = 0;
+            }
+        }
+        escapes[separator] = (byte) separator;
+        special1 = '"' * ONES;
+        special2 = separator * ONES;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Writes a JSON string or a CSV field, "null" or an empty field for null.
+     * @return this writer
+     */
+    public Utf8EscapeWriter writeString(String str) {
+        if (str == null) {
+            return writeNull();
+        }
+
+        ensureCapacity(size + (long) str.length() * maxBytesPerChar + 2);
+        begin();
+        if (STRING_VALUE_OFFSET == -1) {
+            char[] chars = str.toCharArray();
+            writeChars(chars, 0, chars.length);
+        } else {
+            Object value = UNSAFE.getObject(str, STRING_VALUE_OFFSET);
+            if (BYTES) { // support JDK 9/10/11
+                byte[] bytes = (byte[]) value;
+                byte code = UNSAFE.getByte(str, STRING_VALUE_CODE);
+                if (code == 0) { // latin1
+                    writeLatin1(bytes, 0, bytes.length);
+                } else { // utf16
+                    writeChars(bytes, 0, bytes.length / 2);
+                }
+            } else {
+                char[] chars = (char[]) value;
+                writeChars(chars, 0, chars.length);
+            }
+        }
+        end();
+        return this;
+    }
+
+    /**
+     * Writes chars as a JSON string or a CSV field.
+     * @return this writer
+     */
+    public Utf8EscapeWriter writeString(char[] chars, int off, int len) {
+        if (off < 0 || len < 0 || len > chars.length - off) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", chars " + chars.length);
+        }
+        ensureCapacity(size + (long) len * maxBytesPerChar + 2);
+        begin();
+        writeChars(chars, off, len);
+        end();
+        return this;
+    }
+
+    /**
+     * Writes "null" in JSON, nothing in CSV.
+     * @return this writer
+     */
+    public Utf8EscapeWriter writeNull() {
+        if (mode == Mode.JSON) {
+            ensureCapacity(size + 4);
+            bytes[size++] = 'n';
+            bytes[size++] = 'u';
+            bytes[size++] = 'l';
+            bytes[size++] = 'l';
+        }
+        return this;
+    }
+
+    /**
+     * Writes an ASCII char as is, such as a separator, a bracket or a line end.
+     * @return this writer
+     */
+    public Utf8EscapeWriter writeRaw(char c) {
+        if (c >= 0x80) {
+            throw new IllegalArgumentException("not ASCII : " + (int) c);
+        }
+        ensureCapacity(size + 1);
+        bytes[size++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Writes a string encoded by {@link Utf8Utils#encodeUTF8(String, byte[], int)}, not escaped.
+     * @return this writer
+     */
+    public Utf8EscapeWriter writeRaw(String str) {
+        // encodeUTF8 writes 4 bytes for a lone low surrogate
+        ensureCapacity(size + (long) str.length() * 4);
+        size = Utf8Utils.encodeUTF8(str, bytes, size);
+        return this;
+    }
+
+    private void begin() {
+        if (mode == Mode.JSON) {
+            bytes[size++] = '"';
+        }
+        quoted = false;
+    }
+
+    private void end() {
+        if (mode == Mode.JSON || quoted) {
+            bytes[size++] = '"';
+        }
+    }
+
+    private void writeLatin1(byte[] src, int off, int len) {
+        final byte[] dest = this.bytes;
+        final int start = size;
+        long usp = BYTE_ARRAY_BASE_OFFSET + off;
+        final long usl = usp + len;
+        long udp = BYTE_ARRAY_BASE_OFFSET + size;
+
+        while (usp < usl) {
+            // 8 bytes without anything to escape are copied at once
+            if (LITTLE_ENDIAN && usp + 8 <= usl) {
+                long x = UNSAFE.getLong(src, usp);
+                if (plain(x)) {
+                    UNSAFE.putLong(dest, udp, x);
+                    usp += 8;
+                    udp += 8;
+                    continue;
+                }
+            }
+
+            byte b = UNSAFE.getByte(src, usp++);
+            if (b >= 0) {
+                if (escapes[b] == 0) {
+                    UNSAFE.putByte(dest, udp++, b);
+                } else {
+                    udp = escape(b, udp, start);
+                }
+            } else {
+                // 0x80 - 0xff, 2 bytes
+                int c = b & 0xff;
+                UNSAFE.putByte(dest, udp++, (byte) (0xc0 | (c >> 6)));
+                UNSAFE.putByte(dest, udp++, (byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        size = (int) (udp - BYTE_ARRAY_BASE_OFFSET);
+    }
+
+    /**
+     * @return true if none of 8 bytes is non ASCII, a control char or a special char
+     */
+    private boolean plain(long x) {
+        long y1 = x ^ special1;
+        long y2 = x ^ special2;
+        long t = x | ((x - 0x20 * ONES) & ~x) // >= 0x80 or < 0x20
+                | ((y1 - ONES) & ~y1)
+                | ((y2 - ONES) & ~y2);
+        return (t & HIGHS) == 0;
+    }
+
+    private void writeChars(Object chars, int off, int len) {
+        final byte[] dest = this.bytes;
+        final int start = size;
+        long unsafe_off = CHAR_ARRAY_BASE_OFFSET + off * 2;
+        final long unsafe_sl = unsafe_off + len * 2;
+        long udp = BYTE_ARRAY_BASE_OFFSET + size;
+
+        while (unsafe_off < unsafe_sl) {
+            char c = UNSAFE.getChar(chars, unsafe_off);
+            unsafe_off += 2;
+
+            if (c < 0x80) {
+                // Have at most seven bits
+                if (escapes[c] == 0) {
+                    UNSAFE.putByte(dest, udp++, (byte) c);
+                } else {
+                    udp = escape(c, udp, start);
+                }
+            } else if (c < 0x800) {
+                // 2 bytes, 11 bits
+                UNSAFE.putByte(dest, udp++, (byte) (0xc0 | (c >> 6)));
+                UNSAFE.putByte(dest, udp++, (byte) (0x80 | (c & 0x3f)));
+            } else if (c >= '\uD800' && c < '\uE000') { //Character.isSurrogate(c) but 1.7
+                char d;
+                if (c < '\uDC00' // Character.isHighSurrogate(c)
+                        && unsafe_off < unsafe_sl
+                        && (d = UNSAFE.getChar(chars, unsafe_off)) >= '\uDC00' && d < '\uE000') {
+                    int uc = (c << 10) + d + 0xfca02400; // Character.toCodePoint(c, d)
+                    UNSAFE.putByte(dest, udp++, (byte) (0xf0 | ((uc >> 18))));
+                    UNSAFE.putByte(dest, udp++, (byte) (0x80 | ((uc >> 12) & 0x3f)));
+                    UNSAFE.putByte(dest, udp++, (byte) (0x80 | ((uc >> 6) & 0x3f)));
+                    UNSAFE.putByte(dest, udp++, (byte) (0x80 | (uc & 0x3f)));
+                    unsafe_off += 2; // 2 chars
+                } else {
+                    UNSAFE.putByte(dest, udp++, (byte) '?');
+                }
+            } else {
+                // 3 bytes, 16 bits
+                UNSAFE.putByte(dest, udp++, (byte) (0xe0 | ((c >> 12))));
+                UNSAFE.putByte(dest, udp++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+                UNSAFE.putByte(dest, udp++, (byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        size = (int) (udp - BYTE_ARRAY_BASE_OFFSET);
+    }
+
+    /**
+     * Writes an ASCII char having an escape.
+     * @param start offset of the value, where a CSV field gets its opening quote
+     * @return new unsafe offset
+     */
+    private long escape(int c, long udp, int start) {
+        final byte[] dest = this.bytes;
+        if (mode == Mode.JSON) {
+            byte e = escapes[c];
+            UNSAFE.putByte(dest, udp++, (byte) '\\');
+            UNSAFE.putByte(dest, udp++, e);
+            if (e == 'u') {
+                UNSAFE.putByte(dest, udp++, (byte) '0');
+                UNSAFE.putByte(dest, udp++, (byte) '0');
+                UNSAFE.putByte(dest, udp++, HEX[c >> 4]);
+                UNSAFE.putByte(dest, udp++, HEX[c & 0xf]);
+            }
+            return udp;
+        }
+
+        if (!quoted) {
+            // fields rarely need quotes, shift what was written so far instead of
+            // scanning every field twice
+            int end = (int) (udp - BYTE_ARRAY_BASE_OFFSET);
+            System.arraycopy(dest, start, dest, start + 1, end - start);
+            dest[start] = '"';
+            udp++;
+            quoted = true;
+        }
+        if (c == '"') {
+            UNSAFE.putByte(dest, udp++, (byte) '"');
+        }
+        UNSAFE.putByte(dest, udp++, (byte) c);
+        return udp;
+    }
+
+    private void ensureCapacity(long minCapacity) {
+        if (minCapacity <= bytes.length) {
+            return;
+        }
+        long capacity = Math.max((long) bytes.length * 2, minCapacity);
+        if (capacity > Integer.MAX_VALUE - 8) {
+            if (minCapacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("buffer too large : " + minCapacity + " bytes");
+            }
+            capacity = Integer.MAX_VALUE - 8;
+        }
+        bytes = Arrays.copyOf(bytes, (int) capacity);
+    }
+
+    /**
+     * @return the buffer, valid bytes are [0, size())
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empties the writer, keeping its buffer.
+     * @return this writer
+     */
+    public Utf8EscapeWriter reset() {
+        size = 0;
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    public String toString() {
+        return new String(bytes, 0, size, Utf8Utils.UTF8);
+    }
+}
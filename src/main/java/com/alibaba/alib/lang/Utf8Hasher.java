@@ -0,0 +1,356 @@
+package com.alibaba.alib.lang;
+
+import java.nio.ByteOrder;
+import java.nio.charset.MalformedInputException;
+
+import static com.alibaba.alib.lang.Utf8Utils.BYTES;
+import static com.alibaba.alib.lang.Utf8Utils.BYTE_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.CHAR_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.STRING_VALUE_CODE;
+import static com.alibaba.alib.lang.Utf8Utils.STRING_VALUE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.UNSAFE;
+import static com.alibaba.alib.lang.Utf8Utils.UTF8;
+
+/**
+ * XXH64 of the UTF-8 encoding of a String or chars, computed while encoding, without an
+ * intermediate byte[]. The result is the same as
+ * {@code LongHashFunction.xx(seed).hashBytes(bytes)} of the bytes written by
+ * {@link Utf8Utils#encodeUTF8}, including its handling of malformed surrogates.
+ *
+ * An instance holds the hash state and may be reused, but is not thread safe; the static
+ * methods use one instance per thread.
+ */
+public final class Utf8Hasher {
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private static final ThreadLocal<Utf8Hasher> HASHERS = new ThreadLocal<Utf8Hasher>() {
+        protected Utf8Hasher initialValue() {
+            return new Utf8Hasher();
+        }
+    };
+
+    private final long seed;
+
+    private long v1, v2, v3, v4;
+    // complete words of the current 32 byte stripe
+    private long w0, w1, w2;
+    private int words;
+    // bytes not yet making a complete word, first byte lowest
+    private long tail;
+    private int tailBytes;
+    private long length;
+
+    public Utf8Hasher() {
+        this(0);
+    }
+
+    public Utf8Hasher(long seed) {
+        this.seed = seed;
+    }
+
+    public static long xx(String str) {
+        return HASHERS.get().hash(str);
+    }
+
+    public static long xx(char[] chars, int off, int len) {
+        return HASHERS.get().hash(chars, off, len);
+    }
+
+    public long hash(String str) {
+        reset();
+        if (STRING_VALUE_OFFSET == -1) {
+            byte[] bytes = str.getBytes(UTF8);
+            for (byte b : bytes) {
+                append(b & 0xff);
+            }
+            return finish();
+        }
+
+        Object value = UNSAFE.getObject(str, STRING_VALUE_OFFSET);
+        if (BYTES) { // support JDK 9/10/11
+            byte[] bytes = (byte[]) value;
+            byte code = UNSAFE.getByte(str, STRING_VALUE_CODE);
+            if (code == 0) { // latin1
+                appendLatin1(bytes, 0, bytes.length);
+            } else { // utf16
+                appendChars(bytes, 0, bytes.length / 2);
+            }
+        } else {
+            char[] chars = (char[]) value;
+            appendChars(chars, 0, chars.length);
+        }
+        return finish();
+    }
+
+    public long hash(char[] chars, int off, int len) {
+        reset();
+        appendChars(chars, off, len);
+        return finish();
+    }
+
+    private void reset() {
+        v1 = seed + P1 + P2;
+        v2 = seed + P2;
+        v3 = seed;
+        v4 = seed - P1;
+        words = 0;
+        tail = 0;
+        tailBytes = 0;
+        length = 0;
+    }
+
+    /**
+     * Same bytes as {@link Utf8Utils#encodeLatin1}.
+     */
+    private void appendLatin1(byte[] bytes, int off, int len) {
+        long usp = BYTE_ARRAY_BASE_OFFSET + off;
+        final long usl = usp + len;
+
+        // the bytes of the incomplete word are kept in locals, fields are touched once per word
+        long tail = this.tail;
+        int tailBytes = this.tailBytes;
+
+        while (usp < usl) {
+            long x;
+            int n;
+            if (LITTLE_ENDIAN && usp + 8 <= usl
+                    && ((x = UNSAFE.getLong(bytes, usp)) & 0x8080808080808080L) == 0) {
+                // 8 ASCII bytes
+                n = 8;
+                usp += 8;
+            } else {
+                byte b = UNSAFE.getByte(bytes, usp++);
+                if (b >= 0) {
+                    x = b;
+                    n = 1;
+                } else {
+                    // 0x80 - 0xff, 2 bytes
+                    int c = b & 0xff;
+                    x = (0xc0 | (c >> 6)) | ((0x80 | (c & 0x3f)) << 8);
+                    n = 2;
+                }
+            }
+
+            tail |= x << (tailBytes << 3);
+            tailBytes += n;
+            if (tailBytes >= 8) {
+                word(tail);
+                tailBytes -= 8;
+                tail = tailBytes == 0 ? 0 : x >>> ((n - tailBytes) << 3);
+            }
+        }
+
+        this.tail = tail;
+        this.tailBytes = tailBytes;
+    }
+
+    /**
+     * Same bytes as {@link Utf8Utils#encodeUTF8Internal}.
+     */
+    private void appendChars(Object chars, int off, int len) {
+        long unsafe_off = CHAR_ARRAY_BASE_OFFSET + off * 2;
+        final long unsafe_sl = unsafe_off + len * 2;
+        long unsafe_last_off = unsafe_sl - 2;
+
+        long tail = this.tail;
+        int tailBytes = this.tailBytes;
+
+        while (unsafe_off < unsafe_sl) {
+            long x;
+            int n;
+            char c;
+            if (LITTLE_ENDIAN && unsafe_off + 8 <= unsafe_sl
+                    && ((x = UNSAFE.getLong(chars, unsafe_off)) & 0xFF80FF80FF80FF80L) == 0) {
+                // 4 ASCII chars
+                x |= x >>> 8;
+                x = (x & 0xFFFF) | ((x >>> 16) & 0xFFFF0000L);
+                n = 4;
+                unsafe_off += 8;
+            } else if ((c = UNSAFE.getChar(chars, unsafe_off)) < 0x80) {
+                // Have at most seven bits
+                x = c;
+                n = 1;
+                unsafe_off += 2;
+            } else if (c < 0x800) {
+                // 2 bytes, 11 bits
+                x = (0xc0 | (c >> 6)) | ((0x80 | (c & 0x3f)) << 8);
+                n = 2;
+                unsafe_off += 2;
+            } else if (c >= '\uD800' && c < '\uE000') { //Character.isSurrogate(c) but 1.7
+                unsafe_off += 2;
+                if (c < '\uDC00') { // Character.isHighSurrogate(c)
+                    if (unsafe_off > unsafe_last_off) {
+                        // '?' and stop, as the encoder does
+                        x = '?';
+                        n = 1;
+                        unsafe_off = unsafe_sl;
+                    } else {
+                        char d = UNSAFE.getChar(chars, unsafe_off);
+                        if (d < '\uDC00' || d >= '\uE000') { // !Character.isLowSurrogate(d)
+                            throw new RuntimeException("encodeUTF8 error", new MalformedInputException(1));
+                        }
+                        x = utf8_4((c << 10) + d + 0xfca02400); // Character.toCodePoint(c, d)
+                        n = 4;
+                        unsafe_off += 2; // 2 chars
+                    }
+                } else {
+                    x = utf8_4(c);
+                    n = 4;
+                    unsafe_off += 2; // 2 chars, as the encoder does
+                }
+            } else {
+                // 3 bytes, 16 bits
+                x = utf8_3(c);
+                n = 3;
+                unsafe_off += 2;
+
+                // CJK text is mostly runs of 3 byte chars, take two at once
+                char d;
+                if (unsafe_off < unsafe_sl
+                        && (d = UNSAFE.getChar(chars, unsafe_off)) >= 0x800
+                        && (d < '\uD800' || d >= '\uE000')) {
+                    x |= utf8_3(d) << 24;
+                    n = 6;
+                    unsafe_off += 2;
+                }
+            }
+
+            tail |= x << (tailBytes << 3);
+            tailBytes += n;
+            if (tailBytes >= 8) {
+                word(tail);
+                tailBytes -= 8;
+                tail = tailBytes == 0 ? 0 : x >>> ((n - tailBytes) << 3);
+            }
+        }
+
+        this.tail = tail;
+        this.tailBytes = tailBytes;
+    }
+
+    /**
+     * @return 3 byte UTF-8 encoding of a char, first byte lowest
+     */
+    private static long utf8_3(int c) {
+        return (0xe0 | (c >> 12))
+                | ((0x80 | ((c >> 6) & 0x3f)) << 8)
+                | ((0x80 | (c & 0x3f)) << 16);
+    }
+
+    /**
+     * @return 4 byte UTF-8 encoding of a code point, first byte lowest
+     */
+    private static long utf8_4(int uc) {
+        return (0xf0 | (uc >> 18))
+                | ((0x80 | ((uc >> 12) & 0x3f)) << 8)
+                | ((0x80 | ((uc >> 6) & 0x3f)) << 16)
+                | ((long) (0x80 | (uc & 0x3f)) << 24);
+    }
+
+    /**
+     * Appends a byte, for the JDK fallback.
+     */
+    private void append(int b) {
+        tail |= (long) b << (tailBytes << 3);
+        if (++tailBytes == 8) {
+            word(tail);
+            tailBytes = 0;
+            tail = 0;
+        }
+    }
+
+    /**
+     * Hashes a complete word, first byte lowest.
+     */
+    private void word(long word) {
+        length += 8;
+        switch (words) {
+            case 0:
+                w0 = word;
+                words = 1;
+                break;
+            case 1:
+                w1 = word;
+                words = 2;
+                break;
+            case 2:
+                w2 = word;
+                words = 3;
+                break;
+            default:
+                v1 = round(v1, w0);
+                v2 = round(v2, w1);
+                v3 = round(v3, w2);
+                v4 = round(v4, word);
+                words = 0;
+        }
+    }
+
+    private long finish() {
+        long total = length + tailBytes;
+        long h;
+        if (total >= 32) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += total;
+
+        if (words > 0) {
+            h = tailWord(h, w0);
+        }
+        if (words > 1) {
+            h = tailWord(h, w1);
+        }
+        if (words > 2) {
+            h = tailWord(h, w2);
+        }
+
+        long x = tail;
+        int n = tailBytes;
+        if (n >= 4) {
+            h ^= (x & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            x >>>= 32;
+            n -= 4;
+        }
+        for (; n > 0; --n) {
+            h ^= (x & 0xff) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+            x >>>= 8;
+        }
+
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * P1 + P4;
+    }
+
+    private static long tailWord(long h, long word) {
+        h ^= round(0, word);
+        return Long.rotateLeft(h, 27) * P1 + P4;
+    }
+}
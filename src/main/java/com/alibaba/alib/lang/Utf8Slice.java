@@ -0,0 +1,309 @@
+package com.alibaba.alib.lang;
+
+import static com.alibaba.alib.lang.Utf8Utils.BYTE_ARRAY_BASE_OFFSET;
+import static com.alibaba.alib.lang.Utf8Utils.UNSAFE;
+
+/**
+ * A reusable, mutable {@link CharSequence} view over UTF-8 bytes (byte[], off, len).
+ *
+ * Comparison, hashing and prefix checks work on the raw bytes, and on the ASCII prefix of
+ * the content even when comparing against a {@link String}; chars are decoded only when
+ * needed, into a scratch buffer owned by the slice, so a slice reused across {@link #wrap}
+ * calls does not allocate in steady state. The bytes are not copied: the view is only
+ * valid as long as the underlying array is not modified. Malformed sequences decode to
+ * U+FFFD. Not thread safe.
+ */
+public final class Utf8Slice implements CharSequence, Comparable<Utf8Slice> {
+    private byte[] bytes;
+    private int off;
+    private int len;
+
+    private int hash;
+    private int charLen = -1;
+    private boolean ascii;
+    private char[] chars;
+
+    public Utf8Slice() {
+        this.bytes = new byte[0];
+    }
+
+    public Utf8Slice(byte[] bytes) {
+        wrap(bytes, 0, bytes.length);
+    }
+
+    public Utf8Slice(byte[] bytes, int off, int len) {
+        wrap(bytes, off, len);
+    }
+
+    /**
+     * Points this slice to another range of bytes, dropping any decoded state.
+     * @return this slice
+     */
+    public Utf8Slice wrap(byte[] bytes, int off, int len) {
+        if (off < 0 || len < 0 || off + len > bytes.length) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", bytes " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.off = off;
+        this.len = len;
+        this.hash = 0;
+        this.charLen = -1;
+        return this;
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int offset() {
+        return off;
+    }
+
+    /**
+     * @return length of this slice in bytes
+     */
+    public int byteLength() {
+        return len;
+    }
+
+    public boolean isEmpty() {
+        return len == 0;
+    }
+
+    /**
+     * @return length of this slice in UTF-16 chars, decoding it unless it is pure ASCII
+     */
+    public int length() {
+        if (charLen < 0) {
+            decode();
+        }
+        return charLen;
+    }
+
+    public char charAt(int index) {
+        if (charLen < 0) {
+            decode();
+        }
+        if (index < 0 || index >= charLen) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + charLen);
+        }
+        return ascii ? (char) bytes[off + index] : chars[index];
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @SuppressWarnings("deprecation")
+    public String toString() {
+        if (len == 0) {
+            return "";
+        }
+        if (charLen < 0) {
+            decode();
+        }
+        if (ascii) {
+            return new String(bytes, 0, off, len); // hibyte 0, ASCII bytes widen to chars
+        }
+        return new String(chars, 0, charLen);
+    }
+
+    private void decode() {
+        if (asciiPrefix(bytes, off, len) == len) {
+            ascii = true;
+            charLen = len;
+            return;
+        }
+
+        if (chars == null || chars.length < len) {
+            chars = new char[Math.max(len, 32)];
+        }
+        ascii = false;
+        charLen = Utf8Utils.decodeUTF8_replace(bytes, off, len, chars, 0);
+    }
+
+    /**
+     * @return number of leading bytes in range that are ASCII
+     */
+    static int asciiPrefix(byte[] bytes, int off, int len) {
+        long usp = BYTE_ARRAY_BASE_OFFSET + off;
+        final long usl = usp + len;
+
+        for (; usp + 8 <= usl; usp += 8) {
+            if ((UNSAFE.getLong(bytes, usp) & 0x8080808080808080L) != 0) {
+                break;
+            }
+        }
+        for (; usp < usl; usp++) {
+            if (UNSAFE.getByte(bytes, usp) < 0) {
+                break;
+            }
+        }
+        return (int) (usp - BYTE_ARRAY_BASE_OFFSET - off);
+    }
+
+    /**
+     * Byte-level equality with another slice.
+     */
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Utf8Slice)) {
+            return false;
+        }
+        Utf8Slice other = (Utf8Slice) obj;
+        return len == other.len
+                && Utf8Utils.equals(other.bytes, other.off, bytes, off, len);
+    }
+
+    public boolean equals(byte[] bytes, int off, int len) {
+        return this.len == len
+                && Utf8Utils.equals(this.bytes, this.off, bytes, off, len);
+    }
+
+    /**
+     * Hash of the raw bytes, h = 31 * h + b. It is not the same as {@link String#hashCode()}
+     * of the decoded content.
+     */
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && len > 0) {
+            for (int i = off, end = off + len; i < end; ++i) {
+                h = 31 * h + bytes[i];
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * @return true if this slice decodes to the same chars as str
+     */
+    public boolean contentEquals(String str) {
+        int strLen = str.length();
+        if (strLen > len || (charLen >= 0 && charLen != strLen)) {
+            return false; // UTF-8 never has less bytes than UTF-16 chars
+        }
+
+        int i = compareAscii(str, strLen);
+        if (i == strLen) {
+            return i == len;
+        }
+        if (i < 0 || i == len) {
+            return false;
+        }
+
+        if (charLen < 0) {
+            decode();
+        }
+        if (charLen != strLen) {
+            return false;
+        }
+        for (; i < strLen; ++i) {
+            if (chars[i] != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean startsWith(String prefix) {
+        int prefixLen = prefix.length();
+        if (prefixLen > len) {
+            return false;
+        }
+
+        int i = compareAscii(prefix, prefixLen);
+        if (i == prefixLen) {
+            return true;
+        }
+        if (i < 0 || i == len) {
+            return false;
+        }
+
+        if (charLen < 0) {
+            decode();
+        }
+        if (prefixLen > charLen) {
+            return false;
+        }
+        for (; i < prefixLen; ++i) {
+            if (chars[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean startsWith(byte[] prefix) {
+        return prefix.length <= len
+                && Utf8Utils.equals(prefix, 0, bytes, off, prefix.length);
+    }
+
+    /**
+     * Compares in the same order as {@link String#compareTo(String)} of the decoded content.
+     */
+    public int compareTo(String str) {
+        int strLen = str.length();
+
+        int i = compareAscii(str, strLen);
+        if (i < 0) {
+            i = -i - 1;
+            return bytes[off + i] - str.charAt(i);
+        }
+        if (i == len) {
+            return i - strLen; // all ASCII, so i is also the char length
+        }
+
+        if (charLen < 0) {
+            decode();
+        }
+        int min = Math.min(charLen, strLen);
+        for (; i < min; ++i) {
+            char c1 = ascii ? (char) bytes[off + i] : chars[i];
+            char c2 = str.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return charLen - strLen;
+    }
+
+    /**
+     * Compares raw bytes as unsigned values, which is Unicode code point order. It differs
+     * from {@link String#compareTo(String)} for chars above U+FFFF vs U+E000..U+FFFF.
+     */
+    public int compareTo(Utf8Slice other) {
+        int min = Math.min(len, other.len);
+        for (int i = 0; i < min; ++i) {
+            int b1 = bytes[off + i] & 0xff;
+            int b2 = other.bytes[other.off + i] & 0xff;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return len - other.len;
+    }
+
+    /**
+     * Compares leading ASCII bytes with leading chars of str; up to the first non ASCII
+     * byte, byte positions are char positions.
+     * @return count of equal positions when the first non ASCII byte (or the end of either
+     * side) is reached, or -(i + 1) if position i holds an ASCII byte different from the char
+     */
+    private int compareAscii(String str, int strLen) {
+        int min = Math.min(len, strLen);
+        int i = 0;
+        for (; i < min; ++i) {
+            byte b = bytes[off + i];
+            if (b < 0) {
+                break;
+            }
+            if (b != str.charAt(i)) {
+                return -(i + 1);
+            }
+        }
+        return i;
+    }
+}
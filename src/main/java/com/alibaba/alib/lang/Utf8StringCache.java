@@ -0,0 +1,212 @@
+package com.alibaba.alib.lang;
+
+import net.openhft.hashing.LongHashFunction;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, lock-striped cache of decoded UTF-8 strings. Repeated tokens (host names,
+ * url paths, user agents) are decoded once and the canonical {@link String} instance is
+ * returned on every following hit, so the hot parsing path does not allocate.
+ *
+ * Entries are keyed by the xxHash of the raw bytes and the bytes are always verified on
+ * a hit, so hash collisions never return a wrong string. Each stripe is a direct-mapped
+ * table: a new entry evicts whatever occupied its slot before. Malformed input is decoded
+ * with U+FFFD replacement characters, like {@link Utf8Utils#decodeUTF8_replace}.
+ */
+public class Utf8StringCache {
+    final static LongHashFunction HASH = LongHashFunction.xx();
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int maxLength;
+    // tokens longer than maxLength take no stripe lock
+    private final LongAdder bypasses = new LongAdder();
+
+    /**
+     * Initializes cache with 16 stripes of 1024 entries each, caching tokens up to 64 bytes.
+     */
+    public Utf8StringCache() {
+        this(16, 1024, 64);
+    }
+
+    /**
+     * @param stripes number of independently locked stripes, rounded up to a power of two
+     * @param entriesPerStripe capacity of each stripe, rounded up to a power of two
+     * @param maxLength tokens longer than this number of bytes are decoded but never cached
+     */
+    public Utf8StringCache(int stripes, int entriesPerStripe, int maxLength) {
+        if (stripes <= 0 || entriesPerStripe <= 0 || maxLength < 0) {
+            throw new IllegalArgumentException("stripes " + stripes + ", entriesPerStripe " + entriesPerStripe + ", maxLength " + maxLength);
+        }
+
+        int stripeCount = powerOfTwo(stripes);
+        int entries = powerOfTwo(entriesPerStripe);
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; ++i) {
+            this.stripes[i] = new Stripe(entries);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.maxLength = maxLength;
+    }
+
+    private static int powerOfTwo(int n) {
+        int p = Integer.highestOneBit(n);
+        return p == n ? n : p << 1;
+    }
+
+    /**
+     * Decodes UTF-8 bytes into a String, returning a previously decoded instance if the same
+     * bytes were seen before. Malformed sequences are replaced by U+FFFD, never thrown.
+     */
+    public String decode(byte[] bytes, int off, int len) {
+        if (len == 0) {
+            return "";
+        }
+
+        if (len > maxLength) {
+            bypasses.increment();
+            return Utf8Utils.decodeUTF8_replace(bytes, off, len);
+        }
+
+        long hash = HASH.hashBytes(bytes, off, len);
+        Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        int slot = (int) hash & stripe.mask;
+
+        synchronized (stripe) {
+            byte[] key = stripe.keys[slot];
+            if (key != null && stripe.hashes[slot] == hash && equals(key, bytes, off, len)) {
+                stripe.hits++;
+                return stripe.values[slot];
+            }
+            stripe.misses++;
+        }
+
+        // decode outside of the lock, other threads keep hitting this stripe meanwhile
+        String value = Utf8Utils.decodeUTF8_replace(bytes, off, len);
+        byte[] key = new byte[len];
+        System.arraycopy(bytes, off, key, 0, len);
+
+        synchronized (stripe) {
+            if (stripe.keys[slot] == null) {
+                stripe.size++;
+            } else {
+                stripe.evictions++;
+            }
+            stripe.hashes[slot] = hash;
+            stripe.keys[slot] = key;
+            stripe.values[slot] = value;
+        }
+
+        return value;
+    }
+
+    public String decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    static boolean equals(byte[] key, byte[] bytes, int off, int len) {
+        return key.length == len && Utf8Utils.equals(key, 0, bytes, off, len);
+    }
+
+    /**
+     * Removes all entries, keeping the counters.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.keys.length; ++i) {
+                    stripe.keys[i] = null;
+                    stripe.values[i] = null;
+                    stripe.hashes[i] = 0;
+                }
+                stripe.size = 0;
+            }
+        }
+    }
+
+    /**
+     * @return a number of cached entries
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.hits;
+            }
+        }
+        return count;
+    }
+
+    public long missCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.misses;
+            }
+        }
+        return count;
+    }
+
+    public long evictionCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.evictions;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return a number of tokens longer than maxLength, decoded without caching
+     */
+    public long bypassCount() {
+        return bypasses.sum();
+    }
+
+    /**
+     * @return hits / (hits + misses), or 0 if nothing was looked up yet
+     */
+    public double hitRate() {
+        long hits = 0, misses = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                hits += stripe.hits;
+                misses += stripe.misses;
+            }
+        }
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private static final class Stripe {
+        final int mask;
+        final long[] hashes;
+        final byte[][] keys;
+        final String[] values;
+
+        int size;
+        long hits;
+        long misses;
+        long evictions;
+
+        Stripe(int entries) {
+            mask = entries - 1;
+            hashes = new long[entries];
+            keys = new byte[entries][];
+            values = new String[entries];
+        }
+    }
+}
@@ -18,6 +18,8 @@ public class Utf8Utils {
     final static boolean BYTES;
     final static Charset UTF8 = Charset.forName("UTF8");
 
+    public final static char REPLACEMENT_CHAR = '\uFFFD';
+
     static {
         long valueOffset = -1L, codeOffSet = -1L;
         boolean type = false;
@@ -54,8 +56,7 @@ public class Utf8Utils {
             byte[] bytes = (byte[]) value;
             byte code = UNSAFE.getByte(str, STRING_VALUE_CODE);
             if (code == 0) { // latin1
-                System.arraycopy(bytes, 0, dest, dp, bytes.length);
-                return dp + bytes.length;
+                return encodeLatin1(bytes, 0, bytes.length, dest, dp);
             }
             // utf16
             return encodeUTF8Internal(bytes, 0, bytes.length/2, dest, dp);
@@ -65,6 +66,25 @@ public class Utf8Utils {
         }
     }
 
+    static int encodeLatin1(byte[] bytes, final int off, int len, byte[] dest, final int dp) {
+        long usp = BYTE_ARRAY_BASE_OFFSET + off;
+        final long usl = usp + len;
+        long udp = BYTE_ARRAY_BASE_OFFSET + dp;
+
+        for (; usp < usl; usp++) {
+            byte b = UNSAFE.getByte(bytes, usp);
+            if (b >= 0) {
+                UNSAFE.putByte(dest, udp++, b);
+            } else {
+                // 0x80 - 0xff, 2 bytes
+                int c = b & 0xff;
+                UNSAFE.putByte(dest, udp++, (byte) (0xc0 | (c >> 6)));
+                UNSAFE.putByte(dest, udp++, (byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        return (int) (udp - BYTE_ARRAY_BASE_OFFSET);
+    }
+
     static int encodeUTF8Internal(Object chars, final int off, int len, byte[] dest, final int dp) {
         long unsafe_off = CHAR_ARRAY_BASE_OFFSET + off * 2;
         final long unsafe_sl = unsafe_off + len * 2;
@@ -203,9 +223,9 @@ public class Utf8Utils {
     }
 
     public static int decodeUTF8_unsafe(byte[] sa, int sp, int len, char[] da, int dp) {
-        final int daLen = da.length;
-        long dlASCII = (len <= daLen) ? (len * 2) + CHAR_ARRAY_BASE_OFFSET : (daLen * 2) + CHAR_ARRAY_BASE_OFFSET;
+        final int daLen = da.length - dp;
         long udp = (dp * 2) + CHAR_ARRAY_BASE_OFFSET;
+        long dlASCII = (len <= daLen) ? udp + (len * 2) : udp + (daLen * 2);
         long usp = BYTE_ARRAY_BASE_OFFSET + sp;
         long usl = usp + len;
 
@@ -302,7 +322,7 @@ public class Utf8Utils {
                 return -1;
             }
         }
-        return (int) (udp - (dp * 2) + CHAR_ARRAY_BASE_OFFSET) / 2;
+        return (int) ((udp - CHAR_ARRAY_BASE_OFFSET) / 2);
     }
 
     public static String decodeUTF8_unsafe(byte[] sa, int sp, int len) {
@@ -412,6 +432,269 @@ public class Utf8Utils {
         //return (int) (udp - (dp * 2) + CHAR_ARRAY_BASE_OFFSET) / 2;
     }
 
+    /**
+     * Decodes UTF-8, substituting U+FFFD for every malformed sequence exactly as
+     * new String(bytes, UTF_8) does, never failing. da needs room for len chars after dp.
+     * @return position in da after the last decoded char
+     */
+    public static int decodeUTF8_replace(byte[] sa, int sp, int len, char[] da, int dp) {
+        long udp = (dp * 2) + CHAR_ARRAY_BASE_OFFSET;
+        long usp = BYTE_ARRAY_BASE_OFFSET + sp;
+        final long usl = usp + len;
+        final long dlASCII = udp + (len * 2);
+
+        // ASCII only optimized loop
+        for (;udp < dlASCII; usp++, udp+=2) {
+            byte b = UNSAFE.getByte(sa, usp);
+            if (b < 0) {
+                break;
+            }
+            UNSAFE.putChar(da, udp, (char) b);
+        }
+
+        while (usp < usl) {
+            int b1 = UNSAFE.getByte(sa, usp++);
+            if (b1 >= 0) {
+                // 1 byte, 7 bits: 0xxxxxxx
+                UNSAFE.putChar(da, udp, (char) b1);
+                udp += 2;
+            } else if ((b1 >> 5) == -2 && (b1 & 0x1e) != 0) {
+                // 2 bytes, 11 bits: 110xxxxx 10xxxxxx
+                if (usp < usl) {
+                    int b2 = UNSAFE.getByte(sa, usp);
+                    if ((b2 & 0xc0) != 0x80) { // isNotContinuation(b2), b2 starts the next sequence
+                        UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                    } else {
+                        usp++;
+                        UNSAFE.putChar(da, udp, (char) (((b1 << 6) ^ b2)^
+                                (((byte) 0xC0 << 6) ^
+                                        ((byte) 0x80 << 0))));
+                    }
+                    udp += 2;
+                    continue;
+                }
+                UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                udp += 2;
+                break;
+            } else if ((b1 >> 4) == -2) {
+                // 3 bytes, 16 bits: 1110xxxx 10xxxxxx 10xxxxxx
+                if (usp + 1 < usl) {
+                    int b2 = UNSAFE.getByte(sa, usp);
+                    int b3 = UNSAFE.getByte(sa, usp + 1);
+                    if ((b1 == (byte) 0xe0 && (b2 & 0xe0) == 0x80) //
+                            || (b2 & 0xc0) != 0x80) {
+                        // malformed3 length 1, b2 starts the next sequence
+                        UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                    } else if ((b3 & 0xc0) != 0x80) {
+                        usp += 1; // malformed3 length 2
+                        UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                    } else {
+                        usp += 2;
+                        char c = (char)((b1 << 12) ^
+                                (b2 <<  6) ^
+                                (b3 ^
+                                        (((byte) 0xE0 << 12) ^
+                                                ((byte) 0x80 <<  6) ^
+                                                ((byte) 0x80 <<  0))));
+                        boolean isSurrogate = c >= '\uD800' && c < ('\uDFFF' + 1);
+                        UNSAFE.putChar(da, udp, isSurrogate ? REPLACEMENT_CHAR : c);
+                    }
+                    udp += 2;
+                    continue;
+                }
+                UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                udp += 2;
+                if (usp < usl) {
+                    int b2 = UNSAFE.getByte(sa, usp);
+                    if ((b1 == (byte) 0xe0 && (b2 & 0xe0) == 0x80) || (b2 & 0xc0) != 0x80) { // isMalformed3_2
+                        continue;
+                    }
+                }
+                break;
+            } else if ((b1 >> 3) == -2) {
+                // 4 bytes, 21 bits: 11110xxx 10xxxxxx 10xxxxxx 10xxxxxx
+                if (usp + 2 < usl) {
+                    int b2 = UNSAFE.getByte(sa, usp);
+                    int b3 = UNSAFE.getByte(sa, usp + 1);
+                    int b4 = UNSAFE.getByte(sa, usp + 2);
+                    int uc = ((b1 << 18) ^
+                            (b2 << 12) ^
+                            (b3 <<  6) ^
+                            (b4 ^
+                                    (((byte) 0xF0 << 18) ^
+                                            ((byte) 0x80 << 12) ^
+                                            ((byte) 0x80 <<  6) ^
+                                            ((byte) 0x80 <<  0))));
+                    if (((b2 & 0xc0) != 0x80 || (b3 & 0xc0) != 0x80 || (b4 & 0xc0) != 0x80) // isMalformed4
+                            ||
+                            // shortest form check
+                            !(uc >= 0x010000 && uc <  0X10FFFF + 1) // !Character.isSupplementaryCodePoint(uc)
+                    ) {
+                        UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                        udp += 2;
+                        if (!isMalformed4_2(b1 & 0xff, b2 & 0xff)) {
+                            usp += (b3 & 0xc0) != 0x80 ? 1 : 2; // malformed4 length 2 or 3
+                        }
+                    } else {
+                        usp += 3;
+                        UNSAFE.putChar(da, udp, (char) ((uc >>> 10) + ('\uD800' - (0x010000 >>> 10)))); // Character.highSurrogate(uc);
+                        UNSAFE.putChar(da, udp + 2, (char) ((uc & 0x3ff) + '\uDC00')); // Character.lowSurrogate(uc);
+                        udp += 4;
+                    }
+                    continue;
+                }
+                UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                udp += 2;
+                if (usp == usl || isMalformed4_2(b1 & 0xff, UNSAFE.getByte(sa, usp) & 0xff)) {
+                    continue;
+                }
+                usp++;
+                if (usp < usl && (UNSAFE.getByte(sa, usp) & 0xc0) != 0x80) { // isMalformed4_3
+                    continue;
+                }
+                break;
+            } else {
+                UNSAFE.putChar(da, udp, REPLACEMENT_CHAR);
+                udp += 2;
+            }
+        }
+        return (int) ((udp - CHAR_ARRAY_BASE_OFFSET) / 2);
+    }
+
+    public static String decodeUTF8_replace(byte[] sa, int sp, int len) {
+        char[] da = new char[len];
+        int dp = decodeUTF8_replace(sa, sp, len, da, 0);
+        return new String(da, 0, dp);
+    }
+
+    private static boolean isMalformed4_2(int b1, int b2) {
+        return b1 > 0xf4
+                || (b1 == 0xf0 && (b2 < 0x90 || b2 > 0xbf))
+                || (b1 == 0xf4 && (b2 & 0xf0) != 0x80)
+                || (b2 & 0xc0) != 0x80;
+    }
+
+    /**
+     * Decodes UTF-8, stopping at the first malformed sequence without throwing. da needs
+     * room for len chars after dp.
+     * @return position in da after the last decoded char, or a negative value whose
+     * {@link #malformedOffset(int)} is the index in sa where the malformed sequence starts
+     */
+    public static int decodeUTF8_strict(byte[] sa, int sp, int len, char[] da, int dp) {
+        long udp = (dp * 2) + CHAR_ARRAY_BASE_OFFSET;
+        long usp = BYTE_ARRAY_BASE_OFFSET + sp;
+        final long usl = usp + len;
+        final long dlASCII = udp + (len * 2);
+
+        // ASCII only optimized loop
+        for (;udp < dlASCII; usp++, udp+=2) {
+            byte b = UNSAFE.getByte(sa, usp);
+            if (b < 0) {
+                break;
+            }
+            UNSAFE.putChar(da, udp, (char) b);
+        }
+
+        while (usp < usl) {
+            final long start = usp;
+            int b1 = UNSAFE.getByte(sa, usp++);
+            if (b1 >= 0) {
+                // 1 byte, 7 bits: 0xxxxxxx
+                UNSAFE.putChar(da, udp, (char) b1);
+                udp += 2;
+            } else if ((b1 >> 5) == -2 && (b1 & 0x1e) != 0) {
+                // 2 bytes, 11 bits: 110xxxxx 10xxxxxx
+                if (usp < usl) {
+                    int b2 = UNSAFE.getByte(sa, usp++);
+                    if ((b2 & 0xc0) == 0x80) {
+                        UNSAFE.putChar(da, udp, (char) (((b1 << 6) ^ b2)^
+                                (((byte) 0xC0 << 6) ^
+                                        ((byte) 0x80 << 0))));
+                        udp += 2;
+                        continue;
+                    }
+                }
+                return ~(int) (start - BYTE_ARRAY_BASE_OFFSET);
+            } else if ((b1 >> 4) == -2) {
+                // 3 bytes, 16 bits: 1110xxxx 10xxxxxx 10xxxxxx
+                if (usp + 1 < usl) {
+                    int b2 = UNSAFE.getByte(sa, usp++);
+                    int b3 = UNSAFE.getByte(sa, usp++);
+                    if (!((b1 == (byte) 0xe0 && (b2 & 0xe0) == 0x80) //
+                            || (b2 & 0xc0) != 0x80 //
+                            || (b3 & 0xc0) != 0x80)) { // !isMalformed3(b1, b2, b3)
+                        char c = (char)((b1 << 12) ^
+                                (b2 <<  6) ^
+                                (b3 ^
+                                        (((byte) 0xE0 << 12) ^
+                                                ((byte) 0x80 <<  6) ^
+                                                ((byte) 0x80 <<  0))));
+                        if (c < '\uD800' || c > '\uDFFF') {
+                            UNSAFE.putChar(da, udp, c);
+                            udp += 2;
+                            continue;
+                        }
+                    }
+                }
+                return ~(int) (start - BYTE_ARRAY_BASE_OFFSET);
+            } else if ((b1 >> 3) == -2) {
+                // 4 bytes, 21 bits: 11110xxx 10xxxxxx 10xxxxxx 10xxxxxx
+                if (usp + 2 < usl) {
+                    int b2 = UNSAFE.getByte(sa, usp++);
+                    int b3 = UNSAFE.getByte(sa, usp++);
+                    int b4 = UNSAFE.getByte(sa, usp++);
+                    int uc = ((b1 << 18) ^
+                            (b2 << 12) ^
+                            (b3 <<  6) ^
+                            (b4 ^
+                                    (((byte) 0xF0 << 18) ^
+                                            ((byte) 0x80 << 12) ^
+                                            ((byte) 0x80 <<  6) ^
+                                            ((byte) 0x80 <<  0))));
+                    if (!((b2 & 0xc0) != 0x80 || (b3 & 0xc0) != 0x80 || (b4 & 0xc0) != 0x80) // !isMalformed4
+                            && uc >= 0x010000 && uc <  0X10FFFF + 1) { // Character.isSupplementaryCodePoint(uc)
+                        UNSAFE.putChar(da, udp, (char) ((uc >>> 10) + ('\uD800' - (0x010000 >>> 10)))); // Character.highSurrogate(uc);
+                        UNSAFE.putChar(da, udp + 2, (char) ((uc & 0x3ff) + '\uDC00')); // Character.lowSurrogate(uc);
+                        udp += 4;
+                        continue;
+                    }
+                }
+                return ~(int) (start - BYTE_ARRAY_BASE_OFFSET);
+            } else {
+                return ~(int) (start - BYTE_ARRAY_BASE_OFFSET);
+            }
+        }
+        return (int) ((udp - CHAR_ARRAY_BASE_OFFSET) / 2);
+    }
+
+    /**
+     * @param result a negative value returned by {@link #decodeUTF8_strict}
+     * @return index in the source array of the first malformed byte sequence
+     */
+    public static int malformedOffset(int result) {
+        return ~result;
+    }
+
+    static boolean equals(byte[] a, int aOff, byte[] b, int bOff, int len) {
+        long ua = BYTE_ARRAY_BASE_OFFSET + aOff;
+        long ub = BYTE_ARRAY_BASE_OFFSET + bOff;
+        final long ual = ua + len;
+
+        for (; ua + 8 <= ual; ua += 8, ub += 8) {
+            if (UNSAFE.getLong(a, ua) != UNSAFE.getLong(b, ub)) {
+                return false;
+            }
+        }
+
+        for (; ua < ual; ua++, ub++) {
+            if (UNSAFE.getByte(a, ua) != UNSAFE.getByte(b, ub)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private static sun.misc.Unsafe getUnsafe() {
         sun.misc.Unsafe unsafe = null;
         try {
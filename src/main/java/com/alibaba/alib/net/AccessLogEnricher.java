@@ -0,0 +1,337 @@
+package com.alibaba.alib.net;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tags every line of an access log with the value of its client IP in a
+ * {@link IPv4RadixIntTree}, writing "line \t value \n".
+ *
+ * The input file is memory mapped and cut into chunks at line boundaries; chunks are
+ * processed in parallel and written in input order. Within a chunk the IP field is parsed
+ * straight from the mapped bytes, and IPs are looked up in batches, so no String is
+ * created per line. Lines whose IP field can't be parsed get {@link IPv4RadixIntTree#NO_VALUE}
+ * and are counted as bad lines.
+ */
+public class AccessLogEnricher {
+    private final IPv4RadixIntTree tree;
+
+    private int field = 0;
+    private byte delimiter = ' ';
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 1024 * 1024 * 8;
+    private int batchSize = 256;
+
+    public AccessLogEnricher(IPv4RadixIntTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @param field zero based index of the client IP field, 0 for nginx "combined" format
+     */
+    public void setField(int field) {
+        if (field < 0) {
+            throw new IllegalArgumentException("field " + field);
+        }
+        this.field = field;
+    }
+
+    /**
+     * @param delimiter field delimiter, space by default
+     */
+    public void setDelimiter(char delimiter) {
+        if (delimiter > 0x7f || delimiter == '\n') {
+            throw new IllegalArgumentException("delimiter " + (int) delimiter);
+        }
+        this.delimiter = (byte) delimiter;
+    }
+
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @param chunkSize approximate number of input bytes processed by one task
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public Result enrich(String inputFile, String outputFile) throws IOException {
+        OutputStream out = new FileOutputStream(outputFile);
+        try {
+            return enrich(inputFile, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    public Result enrich(String inputFile, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+
+        RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            FileChannel channel = file.getChannel();
+            final long size = channel.size();
+
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+            long pos = 0;
+            while (pos < size) {
+                MappedByteBuffer buf = mapChunk(channel, pos, size);
+                pos += buf.limit();
+                pending.add(executor.submit(new ChunkTask(buf)));
+
+                // bound memory held by finished but unwritten chunks
+                if (pending.size() >= threads * 2) {
+                    write(pending.poll(), out, result);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, result);
+            }
+            result.bytes = size;
+        } finally {
+            executor.shutdownNow();
+            file.close();
+        }
+
+        out.flush();
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Maps at least chunkSize bytes starting at pos, cut after the last complete line.
+     */
+    private MappedByteBuffer mapChunk(FileChannel channel, long pos, long size) throws IOException {
+        long len = Math.min(chunkSize, size - pos);
+        for (;;) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            if (pos + len == size) {
+                return buf;
+            }
+
+            for (int i = (int) len - 1; i >= 0; --i) {
+                if (buf.get(i) == '\n') {
+                    buf.limit(i + 1);
+                    return buf;
+                }
+            }
+
+            // a single line longer than the chunk
+            if (len >= Integer.MAX_VALUE / 2) {
+                throw new IOException("line too long at offset " + pos);
+            }
+            len = Math.min(len * 2, size - pos);
+        }
+    }
+
+    private static void write(Future<Chunk> future, OutputStream out, Result result) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("enrich error", cause);
+        }
+
+        out.write(chunk.bytes, 0, chunk.size);
+        result.lines += chunk.lines;
+        result.badLines += chunk.badLines;
+    }
+
+    private final class ChunkTask implements Callable<Chunk> {
+        private final MappedByteBuffer buf;
+
+        ChunkTask(MappedByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        public Chunk call() {
+            final int limit = buf.limit();
+            final int batch = batchSize;
+
+            int[] lineStarts = new int[batch];
+            int[] lineEnds = new int[batch];
+            long[] ips = new long[batch];
+            int[] values = new int[batch];
+
+            // line + '\t' + up to 11 chars of value + '\n'
+            Chunk chunk = new Chunk(limit + limit / 4 + 64);
+
+            int pos = 0;
+            while (pos < limit) {
+                int n = 0;
+                for (; n < batch && pos < limit; ++n) {
+                    int lineStart = pos;
+                    int lineEnd = lineStart;
+                    int fieldStart = -1, fieldEnd = -1;
+                    int fieldIndex = 0;
+                    if (field == 0) {
+                        fieldStart = lineStart;
+                    }
+
+                    for (; lineEnd < limit; ++lineEnd) {
+                        byte b = buf.get(lineEnd);
+                        if (b == '\n') {
+                            break;
+                        }
+                        if (b == delimiter) {
+                            if (fieldIndex == field) {
+                                fieldEnd = lineEnd;
+                            }
+                            if (++fieldIndex == field) {
+                                fieldStart = lineEnd + 1;
+                            }
+                        }
+                    }
+                    pos = lineEnd + 1;
+
+                    if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') {
+                        lineEnd--;
+                    }
+                    if (fieldStart != -1 && fieldEnd == -1) {
+                        fieldEnd = lineEnd;
+                    }
+
+                    lineStarts[n] = lineStart;
+                    lineEnds[n] = lineEnd;
+                    ips[n] = fieldStart == -1 ? -1 : IPv4PrefixLoader.parseIPv4(buf, fieldStart, fieldEnd);
+                }
+
+                for (int i = 0; i < n; ++i) {
+                    long ip = ips[i];
+                    values[i] = ip == -1 ? IPv4RadixIntTree.NO_VALUE : tree.selectValue(ip);
+                }
+
+                for (int i = 0; i < n; ++i) {
+                    if (ips[i] == -1) {
+                        chunk.badLines++;
+                    }
+                    chunk.append(buf, lineStarts[i], lineEnds[i], values[i]);
+                }
+                chunk.lines += n;
+            }
+
+            return chunk;
+        }
+    }
+
+    static final class Chunk {
+        byte[] bytes;
+        int size;
+        long lines;
+        long badLines;
+
+        Chunk(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void append(MappedByteBuffer buf, int start, int end, int value) {
+            int len = end - start;
+            if (size + len + 13 > bytes.length) {
+                byte[] newBytes = new byte[Math.max(bytes.length * 2, size + len + 13)];
+                System.arraycopy(bytes, 0, newBytes, 0, size);
+                bytes = newBytes;
+            }
+
+            for (int i = start; i < end; ++i) {
+                bytes[size++] = buf.get(i);
+            }
+            bytes[size++] = '\t';
+
+            if (value < 0) {
+                bytes[size++] = '-';
+                if (value == Integer.MIN_VALUE) {
+                    bytes[size++] = '2';
+                    value = -147483648;
+                }
+                value = -value;
+            }
+            int digitsEnd = size + stringSize(value);
+            for (int i = digitsEnd - 1; i >= size; --i) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            size = digitsEnd;
+            bytes[size++] = '\n';
+        }
+
+        static int stringSize(int x) {
+            int size = 1;
+            while (x >= 10) {
+                x /= 10;
+                size++;
+            }
+            return size;
+        }
+    }
+
+    public static class Result {
+        long lines;
+        long badLines;
+        long bytes;
+        long nanos;
+
+        /**
+         * @return a number of lines read and written
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return a number of lines without a valid IPv4 address in the IP field
+         */
+        public long getBadLines() {
+            return badLines;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double linesPerSecond() {
+            return nanos == 0 ? 0 : lines * 1e9 / nanos;
+        }
+
+        public String toString() {
+            return "lines " + lines + ", bad lines " + badLines + ", " + (long) linesPerSecond() + " lines/s";
+        }
+    }
+}
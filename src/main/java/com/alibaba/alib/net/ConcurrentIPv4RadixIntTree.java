@@ -0,0 +1,374 @@
+package com.alibaba.alib.net;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.MAX_IPV4_BIT;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NULL_PTR;
+
+/**
+ * A thread safe {@link IPv4RadixIntTree} for adding and removing prefixes while lookups
+ * continue on other threads.
+ *
+ * The address space is split into 256 shards by the top octet, each a tree of the /8 and
+ * longer prefixes below it; prefixes shorter than /8 go to one more tree consulted when a
+ * shard has no value for an address. Published nodes are never modified: a write copies the
+ * path from the root to the changed node, appends the copies to the node arrays and
+ * publishes the new root with a volatile write, so it costs O(32) whatever the tree size.
+ * Lookups read the published root without locking, writers only contend within a shard and
+ * every put or remove becomes visible at once. A shard compacts its node arrays once the
+ * replaced paths take as many nodes as the live ones.
+ */
+public class ConcurrentIPv4RadixIntTree {
+    static final int SHARDS = 256;
+    // netmask bit of /8, set for prefixes stored in shards
+    static final long SHARD_BIT = 0x01000000L;
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final Shard wide = new Shard(MAX_IPV4_BIT);
+
+    public ConcurrentIPv4RadixIntTree() {
+        for (int i = 0; i < SHARDS; ++i) {
+            shards[i] = new Shard(SHARD_BIT >> 1);
+        }
+        for (Shard shard : shards) {
+            shard.publish();
+        }
+        wide.publish();
+    }
+
+    /**
+     * Initializes a tree with the prefixes of a given one, which is not modified.
+     */
+    public ConcurrentIPv4RadixIntTree(IPv4RadixIntTree tree) {
+        for (int i = 0; i < SHARDS; ++i) {
+            shards[i] = new Shard(SHARD_BIT >> 1);
+        }
+        tree.forEachPrefix(new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                long mask = (0xFFFFFFFFL << (32 - cidr)) & 0xFFFFFFFFL;
+                shard(prefix, mask).add(prefix, mask, value);
+            }
+        });
+        for (Shard shard : shards) {
+            shard.publish();
+        }
+        wide.publish();
+    }
+
+    private Shard shard(long key, long mask) {
+        return (mask & SHARD_BIT) == 0 ? wide : shards[(int) (key >>> 24)];
+    }
+
+    /**
+     * Puts a key-value pair in a tree, see {@link IPv4RadixIntTree#put(long, long, int)}.
+     */
+    public void put(long key, long mask, int value) {
+        key &= mask;
+        shard(key, mask).put(key, mask, value);
+    }
+
+    public void put(String ipNet, int value) throws UnknownHostException {
+        int pos = ipNet.indexOf('/');
+        long ip = IPv4RadixIntTree.inet_aton(ipNet.substring(0, pos));
+        int cidr = Integer.parseInt(ipNet.substring(pos + 1));
+        put(ip, ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL, value);
+    }
+
+    /**
+     * Removes a value stored under a key.
+     * @return removed value, or {@link IPv4RadixIntTree#NO_VALUE} if there was none
+     */
+    public int remove(long key, long mask) {
+        key &= mask;
+        return shard(key, mask).remove(key, mask);
+    }
+
+    /**
+     * Selects a value for a given IPv4 address, see {@link IPv4RadixIntTree#selectValue(long)}.
+     * Never blocks.
+     */
+    public int selectValue(long key) {
+        int value = shards[(int) (key >>> 24) & 0xff].selectValue(key);
+        return value != NO_VALUE ? value : wide.selectValue(key);
+    }
+
+    public int selectValue(String ip) throws UnknownHostException {
+        return selectValue(IPv4RadixIntTree.inet_aton(ip));
+    }
+
+    /**
+     * @return a copy of the prefixes covering addresses with a given top octet
+     */
+    public IPv4RadixIntTree shard(final int octet) {
+        final IPv4RadixIntTree tree = new IPv4RadixIntTree(16);
+        wide.snapshot.forEachPrefix(new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                long last = prefix | (0xFFFFFFFFL >>> cidr);
+                if (prefix >>> 24 <= octet && octet <= last >>> 24) {
+                    tree.put(prefix, (0xFFFFFFFFL << (32 - cidr)) & 0xFFFFFFFFL, value);
+                }
+            }
+        }, (long) octet << 24);
+        shards[octet].snapshot.forEachPrefix(new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                tree.put(prefix, (0xFFFFFFFFL << (32 - cidr)) & 0xFFFFFFFFL, value);
+            }
+        }, (long) octet << 24);
+        return tree;
+    }
+
+    /**
+     * @return a number of nodes in all shards, including replaced ones not compacted yet
+     */
+    public int size() {
+        int size = wide.snapshot.size;
+        for (Shard shard : shards) {
+            size += shard.snapshot.size;
+        }
+        return size;
+    }
+
+    public long memorySize() {
+        long size = wide.snapshot.memorySize();
+        for (Shard shard : shards) {
+            size += shard.snapshot.memorySize();
+        }
+        return size;
+    }
+
+    /**
+     * A published root and the node arrays holding it, which are only appended to.
+     */
+    static final class Snapshot {
+        final int[] lefts;
+        final int[] rights;
+        final int[] values;
+        final int root;
+        final int size;
+        final long topBit;
+
+        Snapshot(int[] lefts, int[] rights, int[] values, int root, int size, long topBit) {
+            this.lefts = lefts;
+            this.rights = rights;
+            this.values = values;
+            this.root = root;
+            this.size = size;
+            this.topBit = topBit;
+        }
+
+        int selectValue(long key) {
+            long bit = topBit;
+            int value = NO_VALUE;
+            int node = root;
+
+            while (node != NULL_PTR) {
+                if (values[node] != NO_VALUE)
+                    value = values[node];
+                node = ((key & bit) != 0) ? rights[node] : lefts[node];
+                bit >>= 1;
+            }
+
+            return value;
+        }
+
+        /**
+         * @param prefix prefix of the root, bits of topBit and below are ignored
+         */
+        void forEachPrefix(IPv4RadixIntTree.PrefixVisitor visitor, long prefix) {
+            if (root != NULL_PTR) {
+                int depth = 31 - Long.numberOfTrailingZeros(topBit);
+                forEachPrefix(visitor, root, depth, prefix & (0xFFFFFFFFL << (32 - depth)) & 0xFFFFFFFFL);
+            }
+        }
+
+        private void forEachPrefix(IPv4RadixIntTree.PrefixVisitor visitor, int node, int depth, long prefix) {
+            if (values[node] != NO_VALUE) {
+                visitor.visit(prefix, depth, values[node]);
+            }
+            if (lefts[node] != NULL_PTR) {
+                forEachPrefix(visitor, lefts[node], depth + 1, prefix);
+            }
+            if (rights[node] != NULL_PTR) {
+                forEachPrefix(visitor, rights[node], depth + 1, prefix | (MAX_IPV4_BIT >>> depth));
+            }
+        }
+
+        long memorySize() {
+            return (long) values.length * 3 * 4;
+        }
+    }
+
+    /**
+     * A path copied tree of the prefixes whose root is at topBit << 1. Writes are serialized
+     * by the shard's monitor.
+     */
+    static final class Shard {
+        volatile Snapshot snapshot;
+
+        private final long topBit;
+        private int[] rights = new int[16];
+        private int[] lefts = new int[16];
+        private int[] values = new int[16];
+        private int size;
+        private int root = NULL_PTR;
+        // nodes below frozen are published and must not be modified
+        private int frozen;
+        // nodes no longer reachable from root
+        private int garbage;
+
+        Shard(long topBit) {
+            this.topBit = topBit;
+        }
+
+        synchronized void put(long key, long mask, int value) {
+            add(key, mask, value);
+            publish();
+        }
+
+        /**
+         * Puts a key-value pair without publishing it.
+         */
+        synchronized void add(long key, long mask, int value) {
+            root = put(root, key, mask, topBit, value);
+        }
+
+        /**
+         * @return the node replacing node, a copy if it is published
+         */
+        private int put(int node, long key, long mask, long bit, int value) {
+            node = node == NULL_PTR ? newNode(NULL_PTR, NULL_PTR, NO_VALUE) : mutable(node);
+            if ((bit & mask) == 0) {
+                values[node] = value;
+                return node;
+            }
+
+            if ((key & bit) != 0) {
+                int child = put(rights[node], key, mask, bit >> 1, value);
+                rights[node] = child;
+            } else {
+                int child = put(lefts[node], key, mask, bit >> 1, value);
+                lefts[node] = child;
+            }
+            return node;
+        }
+
+        synchronized int remove(long key, long mask) {
+            // nothing is copied unless the value exists
+            long bit = topBit;
+            int node = root;
+            while (node != NULL_PTR && (bit & mask) != 0) {
+                node = ((key & bit) != 0) ? rights[node] : lefts[node];
+                bit >>= 1;
+            }
+            if (node == NULL_PTR || values[node] == NO_VALUE) {
+                return NO_VALUE;
+            }
+
+            int value = values[node];
+            root = remove(root, key, mask, topBit);
+            publish();
+            return value;
+        }
+
+        /**
+         * @return the node replacing node, NULL_PTR if it is left without values
+         */
+        private int remove(int node, long key, long mask, long bit) {
+            int left = lefts[node];
+            int right = rights[node];
+            if ((bit & mask) == 0) {
+                if (left == NULL_PTR && right == NULL_PTR) {
+                    garbage++;
+                    return NULL_PTR;
+                }
+                node = mutable(node);
+                values[node] = NO_VALUE;
+                return node;
+            }
+
+            if ((key & bit) != 0) {
+                right = remove(right, key, mask, bit >> 1);
+            } else {
+                left = remove(left, key, mask, bit >> 1);
+            }
+            if (left == NULL_PTR && right == NULL_PTR && values[node] == NO_VALUE) {
+                garbage++;
+                return NULL_PTR;
+            }
+            node = mutable(node);
+            lefts[node] = left;
+            rights[node] = right;
+            return node;
+        }
+
+        /**
+         * Makes the written nodes visible to lookups, compacting first if needed.
+         */
+        synchronized void publish() {
+            if (garbage > 64 && garbage * 2 > size) {
+                compact();
+            }
+            frozen = size;
+            snapshot = new Snapshot(lefts, rights, values, root, size, topBit);
+        }
+
+        /**
+         * Copies the reachable nodes into new arrays, published snapshots keep the old ones.
+         */
+        private void compact() {
+            int[] oldLefts = lefts;
+            int[] oldRights = rights;
+            int[] oldValues = values;
+            int capacity = Math.max(16, (size - garbage) * 2);
+            lefts = new int[capacity];
+            rights = new int[capacity];
+            values = new int[capacity];
+            size = 0;
+            garbage = 0;
+            if (root != NULL_PTR) {
+                root = copy(oldLefts, oldRights, oldValues, root);
+            }
+        }
+
+        private int copy(int[] oldLefts, int[] oldRights, int[] oldValues, int node) {
+            int copy = newNode(NULL_PTR, NULL_PTR, oldValues[node]);
+            if (oldLefts[node] != NULL_PTR) {
+                int left = copy(oldLefts, oldRights, oldValues, oldLefts[node]);
+                lefts[copy] = left;
+            }
+            if (oldRights[node] != NULL_PTR) {
+                int right = copy(oldLefts, oldRights, oldValues, oldRights[node]);
+                rights[copy] = right;
+            }
+            return copy;
+        }
+
+        private int mutable(int node) {
+            if (node >= frozen) {
+                return node;
+            }
+            garbage++;
+            return newNode(lefts[node], rights[node], values[node]);
+        }
+
+        private int newNode(int left, int right, int value) {
+            if (size == values.length) {
+                int capacity = size * 2;
+                rights = Arrays.copyOf(rights, capacity);
+                lefts = Arrays.copyOf(lefts, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            int node = size++;
+            lefts[node] = left;
+            rights[node] = right;
+            values[node] = value;
+            return node;
+        }
+
+        int selectValue(long key) {
+            return snapshot.selectValue(key);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.alibaba.alib.net;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NULL_PTR;
+import static com.alibaba.alib.net.IPv4RadixIntTree.ROOT_PTR;
+
+/**
+ * An alternative, read-only lookup engine for IPv4 prefixes: the address space is cut into
+ * disjoint intervals, each holding the value of its most specific prefix, stored as two
+ * sorted primitive arrays and searched with a branchless binary search.
+ *
+ * Results are the same as {@link IPv4RadixIntTree#selectValue(long)} of the tree it was
+ * built from. It is smaller and faster than the tree when prefixes are mostly disjoint,
+ * and can't be modified once built.
+ */
+public class IPv4IntervalIndex {
+    // interval start addresses, with the sign bit flipped so that signed int comparison
+    // orders them as unsigned addresses; starts[0] is always address 0
+    private final int[] starts;
+    private final int[] values;
+
+    private IPv4IntervalIndex(int[] starts, int[] values) {
+        this.starts = starts;
+        this.values = values;
+    }
+
+    /**
+     * Converts a tree into intervals, merging neighbours with the same value.
+     */
+    public static IPv4IntervalIndex build(IPv4RadixIntTree tree) {
+        Builder builder = new Builder(Math.max(16, tree.size() / 2));
+        builder.walk(tree, ROOT_PTR, 0, 0, NO_VALUE);
+        return new IPv4IntervalIndex(Arrays.copyOf(builder.starts, builder.count)
+                , Arrays.copyOf(builder.values, builder.count));
+    }
+
+    /**
+     * Reads prefixes with {@link IPv4RadixIntTree#loadFromLocalFile(String, boolean)} and
+     * converts them.
+     */
+    public static IPv4IntervalIndex loadFromLocalFile(String filename, boolean nginxFormat) throws IOException {
+        return build(IPv4RadixIntTree.loadFromLocalFile(filename, nginxFormat));
+    }
+
+    /**
+     * Selects a value for a given IPv4 address.
+     * @param key IPv4 address to look up
+     * @return value of the most specific IPv4 network containing the address, or
+     * {@link IPv4RadixIntTree#NO_VALUE}
+     */
+    public int selectValue(long key) {
+        final int[] starts = this.starts;
+        final int k = ((int) key) ^ 0x80000000;
+
+        int base = 0;
+        int n = starts.length;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = starts[base + half] <= k ? base + half : base;
+            n -= half;
+        }
+        return values[base];
+    }
+
+    public int selectValue(String ip) throws UnknownHostException {
+        return selectValue(IPv4RadixIntTree.inet_aton(ip));
+    }
+
+    /**
+     * @return a number of intervals
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * @return size of the interval arrays in bytes
+     */
+    public long memorySize() {
+        return (long) starts.length * 2 * 4;
+    }
+
+    /**
+     * @return start address of interval i
+     */
+    public long start(int i) {
+        return (starts[i] ^ 0x80000000) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return value of interval i
+     */
+    public int value(int i) {
+        return values[i];
+    }
+
+    static final class Builder {
+        int[] starts;
+        int[] values;
+        int count;
+
+        Builder(int capacity) {
+            starts = new int[capacity];
+            values = new int[capacity];
+        }
+
+        void walk(IPv4RadixIntTree tree, int node, int depth, long base, int inherited) {
+            int value = tree.values[node] != NO_VALUE ? tree.values[node] : inherited;
+            int left = tree.lefts[node];
+            int right = tree.rights[node];
+
+            if (left == NULL_PTR && right == NULL_PTR) {
+                add(base, value);
+                return;
+            }
+
+            long half = 1L << (31 - depth);
+            if (left != NULL_PTR) {
+                walk(tree, left, depth + 1, base, value);
+            } else {
+                add(base, value);
+            }
+            if (right != NULL_PTR) {
+                walk(tree, right, depth + 1, base + half, value);
+            } else {
+                add(base + half, value);
+            }
+        }
+
+        void add(long start, int value) {
+            if (count > 0 && values[count - 1] == value) {
+                return;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            starts[count] = ((int) start) ^ 0x80000000;
+            values[count] = value;
+            count++;
+        }
+    }
+}
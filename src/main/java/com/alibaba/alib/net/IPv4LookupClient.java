@@ -0,0 +1,75 @@
+package com.alibaba.alib.net;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A blocking client of {@link IPv4LookupServer}, one connection per client. Not thread
+ * safe: use one client per thread.
+ */
+public class IPv4LookupClient implements Closeable {
+    private final SocketChannel channel;
+    private final int maxBatch;
+    private final ByteBuffer out;
+    private final ByteBuffer in;
+
+    public IPv4LookupClient(String host, int port) throws IOException {
+        this(new InetSocketAddress(host, port), IPv4LookupServer.DEFAULT_MAX_BATCH);
+    }
+
+    public IPv4LookupClient(InetSocketAddress address, int maxBatch) throws IOException {
+        this.maxBatch = maxBatch;
+        this.out = ByteBuffer.allocateDirect(4 + maxBatch * 4);
+        this.in = ByteBuffer.allocateDirect(maxBatch * 4);
+
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Looks up ips[off, off + len) and stores the values in values[off, off + len).
+     * Batches larger than maxBatch are split.
+     */
+    public void lookup(int[] ips, int off, int len, int[] values) throws IOException {
+        while (len > 0) {
+            int count = Math.min(len, maxBatch);
+
+            out.clear();
+            out.putInt(count);
+            for (int i = 0; i < count; ++i) {
+                out.putInt(ips[off + i]);
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+
+            in.clear();
+            in.limit(count * 4);
+            if (!IPv4LookupServer.readFully(channel, in)) {
+                throw new EOFException("connection closed by server");
+            }
+            for (int i = 0; i < count; ++i) {
+                values[off + i] = in.getInt(i * 4);
+            }
+
+            off += count;
+            len -= count;
+        }
+    }
+
+    public int lookup(int ip) throws IOException {
+        int[] values = new int[1];
+        lookup(new int[] {ip}, 0, 1, values);
+        return values[0];
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,252 @@
+package com.alibaba.alib.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small embedded server answering batched IPv4 lookups from a {@link IPv4RadixIntTree}
+ * snapshot over TCP, loopback by default.
+ *
+ * Protocol, all integers big endian: a request is a count n (1 to maxBatch) followed by n
+ * addresses, the response is n values. A connection may send any number of requests; an
+ * invalid count closes it. See {@link IPv4LookupClient}.
+ *
+ * Each connection is served by its own thread: a virtual thread when running on JDK 21 or
+ * later, otherwise a thread of a pool bounded by maxConnections. Connections above that
+ * limit are closed right away. The tree may be swapped with {@link #setTree} while serving,
+ * every batch is answered from a single snapshot.
+ */
+public class IPv4LookupServer implements Closeable {
+    public static final int DEFAULT_MAX_BATCH = 4096;
+    // pause after a failed accept, e.g. when out of file descriptors
+    static final long ACCEPT_BACKOFF_MILLIS = 100;
+
+    private volatile IPv4RadixIntTree tree;
+
+    private final ServerSocketChannel server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int maxConnections;
+    private final int maxBatch;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Thread acceptor;
+
+    private volatile boolean closed;
+
+    /**
+     * Binds a server to the loopback interface.
+     * @param port port to listen on, 0 for any free port
+     */
+    public IPv4LookupServer(IPv4RadixIntTree tree, int port) throws IOException {
+        this(tree, new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256, DEFAULT_MAX_BATCH);
+    }
+
+    public IPv4LookupServer(IPv4RadixIntTree tree, InetSocketAddress address, int maxConnections, int maxBatch) throws IOException {
+        if (maxConnections <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("maxConnections " + maxConnections + ", maxBatch " + maxBatch);
+        }
+        this.tree = tree;
+        this.maxConnections = maxConnections;
+        this.maxBatch = maxBatch;
+
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        if (virtual != null) {
+            executor = virtual;
+            virtualThreads = true;
+        } else {
+            executor = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS
+                    , new SynchronousQueue<Runnable>()
+                    , new DaemonThreadFactory("ipv4-lookup-"));
+            virtualThreads = false;
+        }
+
+        server = ServerSocketChannel.open();
+        server.bind(address);
+
+        acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, "ipv4-lookup-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task, or null before JDK 21
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Throwable e) {
+            // JDK 8 - 20, or preview not enabled
+            return null;
+        }
+    }
+
+    public void start() {
+        acceptor.start();
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public IPv4RadixIntTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Swaps the tree answering new batches; batches in flight finish on the old one.
+     */
+    public void setTree(IPv4RadixIntTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @return a number of open client connections
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    private void accept() {
+        while (!closed) {
+            final SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (closed || !server.isOpen()) {
+                    return;
+                }
+                try {
+                    Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                continue;
+            }
+
+            if (connections.incrementAndGet() > maxConnections) {
+                connections.decrementAndGet();
+                closeQuietly(channel);
+                continue;
+            }
+
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            serve(channel);
+                        } finally {
+                            connections.decrementAndGet();
+                            closeQuietly(channel);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                connections.decrementAndGet();
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        ByteBuffer in = ByteBuffer.allocateDirect(4 + maxBatch * 4);
+        ByteBuffer out = ByteBuffer.allocateDirect(maxBatch * 4);
+
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            for (;;) {
+                in.clear();
+                in.limit(4);
+                if (!readFully(channel, in)) {
+                    return;
+                }
+                int count = in.getInt(0);
+                if (count <= 0 || count > maxBatch) {
+                    return;
+                }
+
+                in.clear();
+                in.limit(count * 4);
+                if (!readFully(channel, in)) {
+                    return;
+                }
+
+                IPv4RadixIntTree snapshot = tree;
+                out.clear();
+                for (int i = 0; i < count; ++i) {
+                    long ip = in.getInt(i * 4) & 0xFFFFFFFFL;
+                    out.putInt(i * 4, snapshot.selectValue(ip));
+                }
+                out.limit(count * 4);
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    static boolean readFully(SocketChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // skip
+        }
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        executor.shutdownNow();
+    }
+
+    static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
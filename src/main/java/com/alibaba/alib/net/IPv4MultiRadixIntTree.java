@@ -0,0 +1,190 @@
+package com.alibaba.alib.net;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.MAX_IPV4_BIT;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NULL_PTR;
+import static com.alibaba.alib.net.IPv4RadixIntTree.ROOT_PTR;
+
+/**
+ * A read-only merge of up to 32 {@link IPv4RadixIntTree}s ("tables") that answers all of them
+ * in a single traversal, instead of one 32 step walk per table.
+ *
+ * Each node holds its children, a bitmask of the tables having a value there and the position
+ * of those values in a packed value column, ordered by table. The four ints of a node are
+ * stored next to each other, so visiting a node touches one cache line.
+ */
+public class IPv4MultiRadixIntTree {
+    static final int NODE_SIZE = 4;
+    static final int LEFT = 0;
+    static final int RIGHT = 1;
+    static final int MASK = 2;
+    static final int BASE = 3;
+
+    private final int tables;
+
+    private int[] nodes;
+    private int size;
+
+    private int[] values;
+    private int valueCount;
+
+    private IPv4MultiRadixIntTree(int tables, int nodeCapacity) {
+        this.tables = tables;
+        this.nodes = new int[nodeCapacity * NODE_SIZE];
+        this.values = new int[Math.max(16, nodeCapacity / 4)];
+    }
+
+    /**
+     * Merges trees into one; table i answers lookups of trees[i]. Trees are not modified.
+     */
+    public static IPv4MultiRadixIntTree merge(IPv4RadixIntTree... trees) {
+        if (trees.length == 0 || trees.length > 32) {
+            throw new IllegalArgumentException("tables " + trees.length);
+        }
+
+        int capacity = 16;
+        for (IPv4RadixIntTree tree : trees) {
+            capacity = Math.max(capacity, tree.size());
+        }
+
+        IPv4MultiRadixIntTree multi = new IPv4MultiRadixIntTree(trees.length, capacity);
+        // node of every tree on the current path, per depth
+        int[][] path = new int[33][trees.length];
+        Arrays.fill(path[0], ROOT_PTR);
+        multi.merge(trees, path, 0);
+        multi.nodes = Arrays.copyOf(multi.nodes, multi.size * NODE_SIZE);
+        multi.values = Arrays.copyOf(multi.values, multi.valueCount);
+        return multi;
+    }
+
+    private int merge(IPv4RadixIntTree[] trees, int[][] path, int depth) {
+        int[] current = path[depth];
+
+        int node = size++;
+        if (node * NODE_SIZE == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        int p = node * NODE_SIZE;
+
+        int mask = 0;
+        int base = valueCount;
+        for (int t = 0; t < trees.length; ++t) {
+            int n = current[t];
+            if (n != NULL_PTR && trees[t].values[n] != NO_VALUE) {
+                if (valueCount == values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                values[valueCount++] = trees[t].values[n];
+                mask |= 1 << t;
+            }
+        }
+        nodes[p + MASK] = mask;
+        nodes[p + BASE] = base;
+        nodes[p + LEFT] = NULL_PTR;
+        nodes[p + RIGHT] = NULL_PTR;
+
+        if (depth == 32) {
+            return node;
+        }
+
+        int[] next = path[depth + 1];
+        if (children(trees, current, next, false)) {
+            int left = merge(trees, path, depth + 1);
+            nodes[p + LEFT] = left;
+        }
+        if (children(trees, current, next, true)) {
+            int right = merge(trees, path, depth + 1);
+            nodes[p + RIGHT] = right;
+        }
+        return node;
+    }
+
+    private static boolean children(IPv4RadixIntTree[] trees, int[] current, int[] next, boolean right) {
+        boolean any = false;
+        for (int t = 0; t < trees.length; ++t) {
+            int n = current[t];
+            int child = n == NULL_PTR ? NULL_PTR : right ? trees[t].rights[n] : trees[t].lefts[n];
+            next[t] = child;
+            any |= child != NULL_PTR;
+        }
+        return any;
+    }
+
+    /**
+     * Selects values of all tables for a given IPv4 address in one traversal.
+     * @param key IPv4 address to look up
+     * @param dest receives the value of table i at dest[i], {@link IPv4RadixIntTree#NO_VALUE}
+     * if the table has none; its length must be at least {@link #tables()}
+     */
+    public void selectValues(long key, int[] dest) {
+        final int[] nodes = this.nodes;
+        final int[] values = this.values;
+        Arrays.fill(dest, 0, tables, NO_VALUE);
+
+        long bit = MAX_IPV4_BIT;
+        int node = ROOT_PTR;
+        while (node != NULL_PTR) {
+            int p = node * NODE_SIZE;
+            int mask = nodes[p + MASK];
+            if (mask != 0) {
+                int base = nodes[p + BASE];
+                for (; mask != 0; mask &= mask - 1) {
+                    dest[Integer.numberOfTrailingZeros(mask)] = values[base++];
+                }
+            }
+            node = ((key & bit) != 0) ? nodes[p + RIGHT] : nodes[p + LEFT];
+            bit >>= 1;
+        }
+    }
+
+    public void selectValues(String ip, int[] dest) throws UnknownHostException {
+        selectValues(IPv4RadixIntTree.inet_aton(ip), dest);
+    }
+
+    /**
+     * Selects a value of a single table, see {@link IPv4RadixIntTree#selectValue(long)}.
+     */
+    public int selectValue(long key, int table) {
+        final int[] nodes = this.nodes;
+        final int tableBit = 1 << table;
+        final int lower = tableBit - 1;
+
+        long bit = MAX_IPV4_BIT;
+        int value = NO_VALUE;
+        int node = ROOT_PTR;
+        while (node != NULL_PTR) {
+            int p = node * NODE_SIZE;
+            int mask = nodes[p + MASK];
+            if ((mask & tableBit) != 0) {
+                value = values[nodes[p + BASE] + Integer.bitCount(mask & lower)];
+            }
+            node = ((key & bit) != 0) ? nodes[p + RIGHT] : nodes[p + LEFT];
+            bit >>= 1;
+        }
+        return value;
+    }
+
+    /**
+     * @return a number of merged tables
+     */
+    public int tables() {
+        return tables;
+    }
+
+    /**
+     * @return a number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return size of node and value arrays in bytes
+     */
+    public long memorySize() {
+        return ((long) nodes.length + values.length) * 4;
+    }
+}
@@ -0,0 +1,192 @@
+package com.alibaba.alib.net;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.MAX_IPV4_BIT;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NULL_PTR;
+import static com.alibaba.alib.net.IPv4RadixIntTree.ROOT_PTR;
+
+/**
+ * Canonicalizes the prefixes of a {@link IPv4RadixIntTree}: sibling prefixes with the same
+ * value are merged into their parent, and prefixes with the same value as their covering
+ * prefix are dropped. Lookups in the result return the same values for every address.
+ *
+ * Subtrees are first reduced bottom up to a single value where every address below them
+ * gets the same one; prefixes are then emitted top down only where the value changes, and a
+ * prefix is dropped when more specific prefixes cover its whole block. The result is not
+ * guaranteed minimal: values are kept on the prefixes they were put on, not reassigned
+ * between a prefix and its children as ORTC does.
+ */
+public class IPv4PrefixAggregator {
+    private final IPv4RadixIntTree tree;
+    // value every address below a node gets, valid unless mixed
+    private final int[] uniform;
+    private final boolean[] mixed;
+    // for mixed nodes, some address below gets the node's value, not a more specific one
+    private final boolean[] open;
+
+    private IPv4PrefixAggregator(IPv4RadixIntTree tree) {
+        this.tree = tree;
+        this.uniform = new int[tree.size];
+        this.mixed = new boolean[tree.size];
+        this.open = new boolean[tree.size];
+        reduce(ROOT_PTR, NO_VALUE);
+    }
+
+    /**
+     * Builds a tree of the canonical prefixes, trimmed to size.
+     */
+    public static Result aggregate(IPv4RadixIntTree tree) {
+        final IPv4RadixIntTree out = new IPv4RadixIntTree(Math.max(16, tree.size));
+        final int[] prefixes = new int[2];
+        tree.forEachPrefix(new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                prefixes[0]++;
+            }
+        });
+        aggregate(tree, new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                out.put(prefix, (0xFFFFFFFFL << (32 - cidr)) & 0xFFFFFFFFL, value);
+                prefixes[1]++;
+            }
+        });
+
+        Result result = new Result();
+        result.tree = out.copy(out.size());
+        result.prefixesBefore = prefixes[0];
+        result.prefixesAfter = prefixes[1];
+        result.nodesBefore = tree.size();
+        result.nodesAfter = result.tree.size();
+        result.memoryBefore = tree.memorySize();
+        result.memoryAfter = result.tree.memorySize();
+        return result;
+    }
+
+    /**
+     * Visits the canonical prefixes of a tree, less specific prefixes first, for example to
+     * write a minimized prefix file.
+     */
+    public static void aggregate(IPv4RadixIntTree tree, IPv4RadixIntTree.PrefixVisitor visitor) {
+        new IPv4PrefixAggregator(tree).emit(visitor, ROOT_PTR, 0, 0, NO_VALUE, NO_VALUE);
+    }
+
+    /**
+     * @param inherited value of the closest ancestor having one
+     */
+    private void reduce(int node, int inherited) {
+        int value = tree.values[node] != NO_VALUE ? tree.values[node] : inherited;
+        int left = tree.lefts[node];
+        int right = tree.rights[node];
+
+        // a missing child is a region getting this node's value
+        boolean leftMixed = false, rightMixed = false;
+        int leftValue = value, rightValue = value;
+        if (left != NULL_PTR) {
+            reduce(left, value);
+            leftMixed = mixed[left];
+            leftValue = uniform[left];
+        }
+        if (right != NULL_PTR) {
+            reduce(right, value);
+            rightMixed = mixed[right];
+            rightValue = uniform[right];
+        }
+
+        if (leftMixed || rightMixed || leftValue != rightValue) {
+            mixed[node] = true;
+            open[node] = falls(left, value) || falls(right, value);
+        } else {
+            uniform[node] = leftValue;
+        }
+    }
+
+    /**
+     * @return true if some address below a reduced child gets the value of its parent
+     */
+    private boolean falls(int child, int parentValue) {
+        if (child == NULL_PTR) {
+            return true;
+        }
+        if (!mixed[child]) {
+            return uniform[child] == parentValue;
+        }
+        int value = tree.values[child] != NO_VALUE ? tree.values[child] : parentValue;
+        return value == parentValue && open[child];
+    }
+
+    /**
+     * @param emitted value addresses below the node get from emitted ancestors
+     * @param inherited value of the closest ancestor having one in the tree
+     */
+    private void emit(IPv4RadixIntTree.PrefixVisitor visitor, int node, int depth, long prefix, int emitted, int inherited) {
+        if (!mixed[node]) {
+            if (uniform[node] != emitted) {
+                visitor.visit(prefix, depth, uniform[node]);
+            }
+            return;
+        }
+
+        // a prefix no address gets its value from is dropped, the children then override
+        // every address below it whatever their emitted ancestor is
+        int value = tree.values[node] != NO_VALUE ? tree.values[node] : inherited;
+        if (value != emitted && open[node]) {
+            visitor.visit(prefix, depth, value);
+            emitted = value;
+        }
+        if (tree.lefts[node] != NULL_PTR) {
+            emit(visitor, tree.lefts[node], depth + 1, prefix, emitted, value);
+        }
+        if (tree.rights[node] != NULL_PTR) {
+            emit(visitor, tree.rights[node], depth + 1, prefix | (MAX_IPV4_BIT >>> depth), emitted, value);
+        }
+    }
+
+    public static class Result {
+        IPv4RadixIntTree tree;
+        int prefixesBefore;
+        int prefixesAfter;
+        int nodesBefore;
+        int nodesAfter;
+        long memoryBefore;
+        long memoryAfter;
+
+        /**
+         * @return the aggregated tree
+         */
+        public IPv4RadixIntTree getTree() {
+            return tree;
+        }
+
+        public int getPrefixesBefore() {
+            return prefixesBefore;
+        }
+
+        public int getPrefixesAfter() {
+            return prefixesAfter;
+        }
+
+        public int getNodesBefore() {
+            return nodesBefore;
+        }
+
+        public int getNodesAfter() {
+            return nodesAfter;
+        }
+
+        /**
+         * @return {@link IPv4RadixIntTree#memorySize()} of the input tree
+         */
+        public long getMemoryBefore() {
+            return memoryBefore;
+        }
+
+        public long getMemoryAfter() {
+            return memoryAfter;
+        }
+
+        public String toString() {
+            return "prefixes " + prefixesBefore + " -> " + prefixesAfter
+                    + ", nodes " + nodesBefore + " -> " + nodesAfter
+                    + ", bytes " + memoryBefore + " -> " + memoryAfter;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.alibaba.alib.net;
+
+import java.net.UnknownHostException;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+
+/**
+ * A pre-filter in front of a {@link IPv4RadixIntTree} for workloads where most lookups hit no
+ * prefix, such as blocklists. Definite misses are answered without walking the tree.
+ *
+ * The address space is cut into blocks of the top blockBits (16 to 24) bits. One bitmap marks
+ * blocks covered by a prefix of at most blockBits, another marks blocks containing longer
+ * prefixes. The two bitmaps are interleaved word by word in one array, so both bits of a
+ * block lie in the same 16 bytes and a key in a block with neither bit set is a miss in one
+ * memory access. For a block with longer prefixes only, a Bloom filter over (prefix, length)
+ * pairs is probed for each prefix length present in the tree, and the tree is walked only if
+ * one of them may match.
+ *
+ * The filter is a snapshot: prefixes put in the tree after {@link #build} are not seen by it.
+ */
+public class IPv4PrefixFilter {
+    public static final int DEFAULT_BLOCK_BITS = 24;
+
+    private static final int BLOOM_HASHES = 3;
+    private static final int BLOOM_BITS_PER_PREFIX = 16;
+
+    private final IPv4RadixIntTree tree;
+    private final int blockBits;
+    private final int blockShift;
+
+    // per 64 blocks, a word of bits set for blocks covered by a prefix of at most blockBits,
+    // then a word of bits set for blocks containing a prefix longer than blockBits
+    private final long[] blocks;
+
+    private final long[] bloom;
+    private final int bloomMask;
+    // bit per prefix length above blockBits present in the tree, lowest bit is length 32
+    private final int lengths;
+
+    private IPv4PrefixFilter(IPv4RadixIntTree tree, int blockBits, int bloomSize, int lengths) {
+        this.tree = tree;
+        this.blockBits = blockBits;
+        this.blockShift = 32 - blockBits;
+        this.blocks = new long[Math.max(1, (1 << blockBits) >>> 6) * 2];
+        this.bloom = new long[bloomSize >>> 6];
+        this.bloomMask = bloomSize - 1;
+        this.lengths = lengths;
+    }
+
+    public static IPv4PrefixFilter build(IPv4RadixIntTree tree) {
+        return build(tree, DEFAULT_BLOCK_BITS);
+    }
+
+    /**
+     * @param blockBits number of top address bits indexed by the bitmaps, 16 to 24; the
+     * bitmaps take 2 ^ (blockBits - 2) bytes
+     */
+    public static IPv4PrefixFilter build(IPv4RadixIntTree tree, final int blockBits) {
+        if (blockBits < 16 || blockBits > 24) {
+            throw new IllegalArgumentException("blockBits " + blockBits);
+        }
+
+        // number of prefixes longer than blockBits and their lengths
+        final int[] longer = new int[2];
+        tree.forEachPrefix(new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                if (cidr > blockBits) {
+                    longer[0]++;
+                    longer[1] |= 1 << (32 - cidr);
+                }
+            }
+        });
+
+        int bloomSize = 64;
+        while (bloomSize < longer[0] * BLOOM_BITS_PER_PREFIX && bloomSize < (1 << 30)) {
+            bloomSize <<= 1;
+        }
+
+        final IPv4PrefixFilter filter = new IPv4PrefixFilter(tree, blockBits, bloomSize, longer[1]);
+        tree.forEachPrefix(new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                int block = (int) (prefix >>> filter.blockShift);
+                if (cidr <= blockBits) {
+                    filter.setCovered(block, 1 << (blockBits - cidr));
+                } else {
+                    filter.blocks[(block >>> 6) * 2 + 1] |= 1L << block;
+                    filter.bloomAdd(prefix, cidr);
+                }
+            }
+        });
+        return filter;
+    }
+
+    private void setCovered(int from, int count) {
+        int to = from + count;
+        while (from < to && (from & 63) != 0) {
+            blocks[(from >>> 6) * 2] |= 1L << from;
+            from++;
+        }
+        while (from + 64 <= to) {
+            blocks[(from >>> 6) * 2] = -1L;
+            from += 64;
+        }
+        while (from < to) {
+            blocks[(from >>> 6) * 2] |= 1L << from;
+            from++;
+        }
+    }
+
+    /**
+     * @return false if the tree has no value for the key, true if it may have one
+     */
+    public boolean mightContain(long key) {
+        int block = (int) (key >>> blockShift);
+        int word = (block >>> 6) * 2;
+        long bit = 1L << block;
+        if ((blocks[word] & bit) != 0) {
+            return true;
+        }
+        if ((blocks[word + 1] & bit) == 0) {
+            return false;
+        }
+
+        for (int l = lengths; l != 0; l &= l - 1) {
+            int cidr = 32 - Integer.numberOfTrailingZeros(l);
+            long mask = (0xFFFFFFFFL << (32 - cidr)) & 0xFFFFFFFFL;
+            if (bloomContains(key & mask, cidr)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link IPv4RadixIntTree#selectValue(long)}, skipping the tree walk for
+     * definite misses.
+     */
+    public int selectValue(long key) {
+        return mightContain(key) ? tree.selectValue(key) : NO_VALUE;
+    }
+
+    public int selectValue(String ip) throws UnknownHostException {
+        return selectValue(IPv4RadixIntTree.inet_aton(ip));
+    }
+
+    public IPv4RadixIntTree getTree() {
+        return tree;
+    }
+
+    public int getBlockBits() {
+        return blockBits;
+    }
+
+    /**
+     * @return size of the bitmaps and the Bloom filter in bytes
+     */
+    public long memorySize() {
+        return ((long) blocks.length + bloom.length) * 8;
+    }
+
+    private void bloomAdd(long prefix, int cidr) {
+        long h = hash(prefix, cidr);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < BLOOM_HASHES; ++i) {
+            int index = (h1 + i * h2) & bloomMask;
+            bloom[index >>> 6] |= 1L << index;
+        }
+    }
+
+    private boolean bloomContains(long prefix, int cidr) {
+        long h = hash(prefix, cidr);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < BLOOM_HASHES; ++i) {
+            int index = (h1 + i * h2) & bloomMask;
+            if ((bloom[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // murmur3 fmix64
+    static long hash(long prefix, int cidr) {
+        long h = (prefix << 6) | cidr;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,450 @@
+package com.alibaba.alib.net;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads IPv4 prefixes and their values from text into a {@link IPv4RadixIntTree}.
+ *
+ * A line holds a key and a value field. A key is a network "a.b.c.d/e", a single address
+ * "a.b.c.d", or an inclusive range "a.b.c.d-e.f.g.h", which is split into the fewest
+ * networks covering it. Values are decimal or hex ints, other than
+ * {@link IPv4RadixIntTree#NO_VALUE}. Empty lines and lines starting with '#' are skipped,
+ * CR before LF is ignored and the last line needs no LF.
+ *
+ * Files are memory mapped and parsed in place. A bad line either fails the load with an
+ * {@link UnknownHostException} naming its offset, or is skipped and counted, see
+ * {@link #setSkipBadLines(boolean)}.
+ */
+public class IPv4PrefixLoader {
+    public enum Format {
+        /**
+         * Tab separated fields.
+         */
+        TSV,
+        /**
+         * Comma separated fields, each optionally in double quotes.
+         */
+        CSV,
+        /**
+         * Body of an nginx "geo" block: fields separated by spaces or tabs, lines end with ';'.
+         * Lines not starting with a digit, such as "geo $x {", "default 0;", "ranges;" and "}",
+         * are skipped.
+         */
+        NGINX
+    }
+
+    static final int MAX_BAD_LINE_OFFSETS = 100;
+
+    private Format format = Format.TSV;
+    private int keyField = 0;
+    private int valueField = 1;
+    private int valueRadix = 10;
+    private boolean skipHeader;
+    private boolean skipBadLines;
+
+    public IPv4PrefixLoader() {
+    }
+
+    public IPv4PrefixLoader(Format format) {
+        setFormat(format);
+    }
+
+    /**
+     * Sets a format, and hex values for {@link Format#NGINX} or decimal ones otherwise.
+     */
+    public void setFormat(Format format) {
+        this.format = format;
+        this.valueRadix = format == Format.NGINX ? 16 : 10;
+    }
+
+    /**
+     * @param keyField zero based index of the key field, 0 by default
+     * @param valueField zero based index of the value field, 1 by default
+     */
+    public void setFields(int keyField, int valueField) {
+        if (keyField < 0 || valueField < 0 || keyField == valueField) {
+            throw new IllegalArgumentException("keyField " + keyField + ", valueField " + valueField);
+        }
+        this.keyField = keyField;
+        this.valueField = valueField;
+    }
+
+    /**
+     * @param hex true to read values as hex, without "0x"
+     */
+    public void setHexValues(boolean hex) {
+        this.valueRadix = hex ? 16 : 10;
+    }
+
+    /**
+     * @param skipHeader true to skip the first line, such as CSV column names
+     */
+    public void setSkipHeader(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * @param skipBadLines true to skip and count bad lines, false to fail on the first one
+     */
+    public void setSkipBadLines(boolean skipBadLines) {
+        this.skipBadLines = skipBadLines;
+    }
+
+    /**
+     * Reads a local file into a new tree sized by its line count.
+     */
+    public IPv4RadixIntTree load(String filename) throws IOException {
+        IPv4RadixIntTree tree = new IPv4RadixIntTree(Math.max(16, IPv4RadixIntTree.countLines(filename)));
+        load(filename, tree);
+        return tree;
+    }
+
+    /**
+     * Reads a local file, putting its prefixes into a given tree.
+     */
+    public Result load(String filename, IPv4RadixIntTree tree) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+
+        RandomAccessFile file = new RandomAccessFile(filename, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long pos = 0;
+            while (pos < size) {
+                ByteBuffer buf = map(channel, pos, size);
+                parse(buf, pos, tree, result);
+                pos += buf.limit();
+            }
+            result.bytes = size;
+        } finally {
+            file.close();
+        }
+
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Parses bytes [off, off + len), putting prefixes into a given tree.
+     */
+    public Result load(byte[] bytes, int off, int len, IPv4RadixIntTree tree) throws UnknownHostException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        ByteBuffer buf = ByteBuffer.wrap(bytes, off, len).slice();
+        parse(buf, 0, tree, result);
+        result.bytes = len;
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Maps up to 1G bytes starting at pos, cut after the last complete line.
+     */
+    private static ByteBuffer map(FileChannel channel, long pos, long size) throws IOException {
+        long len = Math.min(1 << 30, size - pos);
+        ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+        if (pos + len == size) {
+            return buf;
+        }
+        for (int i = (int) len - 1; i >= 0; --i) {
+            if (buf.get(i) == '\n') {
+                buf.limit(i + 1);
+                return buf;
+            }
+        }
+        throw new IOException("line too long at offset " + pos);
+    }
+
+    private void parse(ByteBuffer buf, long baseOffset, IPv4RadixIntTree tree, Result result) throws UnknownHostException {
+        final int limit = buf.limit();
+        // start and end of the key and value fields
+        final int[] fields = new int[4];
+
+        int pos = 0;
+        while (pos < limit) {
+            int lineStart = pos;
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            pos = lineEnd + 1;
+            if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            result.lines++;
+            if (skipHeader && baseOffset == 0 && lineStart == 0) {
+                continue;
+            }
+            if (format == Format.NGINX) {
+                while (lineStart < lineEnd && (buf.get(lineStart) == ' ' || buf.get(lineStart) == '\t')) {
+                    lineStart++;
+                }
+            }
+            if (lineEnd == lineStart || buf.get(lineStart) == '#') {
+                continue;
+            }
+
+            byte first = buf.get(lineStart);
+            if (format == Format.NGINX && (first < '0' || first > '9')) {
+                continue;
+            }
+
+            if (!parseLine(buf, lineStart, lineEnd, fields, tree)) {
+                if (!skipBadLines) {
+                    throw new UnknownHostException("illegal line at offset " + (baseOffset + lineStart)
+                            + " : " + string(buf, lineStart, lineEnd));
+                }
+                result.addBadLine(baseOffset + lineStart);
+            } else {
+                result.prefixes++;
+            }
+        }
+    }
+
+    private boolean parseLine(ByteBuffer buf, int start, int end, int[] fields, IPv4RadixIntTree tree) {
+        if (format == Format.NGINX && buf.get(end - 1) == ';') {
+            end--;
+        }
+        if (!split(buf, start, end, fields)) {
+            return false;
+        }
+
+        long value = parseValue(buf, fields[2], fields[3], valueRadix);
+        if (value == Long.MIN_VALUE || value == IPv4RadixIntTree.NO_VALUE) {
+            return false;
+        }
+
+        int keyStart = fields[0], keyEnd = fields[1];
+        int slash = -1, dash = -1;
+        for (int i = keyStart; i < keyEnd; ++i) {
+            byte b = buf.get(i);
+            if (b == '/') {
+                slash = i;
+            } else if (b == '-') {
+                dash = i;
+            }
+        }
+
+        if (dash != -1) {
+            if (slash != -1) {
+                return false;
+            }
+            long from = parseIPv4(buf, keyStart, dash);
+            long to = parseIPv4(buf, dash + 1, keyEnd);
+            if (from == -1 || to == -1 || from > to) {
+                return false;
+            }
+            putRange(tree, from, to, (int) value);
+            return true;
+        }
+
+        long ip = parseIPv4(buf, keyStart, slash == -1 ? keyEnd : slash);
+        if (ip == -1) {
+            return false;
+        }
+        int cidr = 32;
+        if (slash != -1) {
+            long c = parseValue(buf, slash + 1, keyEnd, 10);
+            if (c < 0 || c > 32 || keyEnd - slash > 3) {
+                return false;
+            }
+            cidr = (int) c;
+        }
+        tree.put(ip, (0xFFFFFFFFL << (32 - cidr)) & 0xFFFFFFFFL, (int) value);
+        return true;
+    }
+
+    /**
+     * Finds the key and value fields, stripping CSV quotes.
+     */
+    private boolean split(ByteBuffer buf, int start, int end, int[] fields) {
+        Arrays.fill(fields, -1);
+        byte delimiter = format == Format.CSV ? (byte) ',' : (byte) '\t';
+        boolean blanks = format == Format.NGINX;
+
+        int field = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; ++i) {
+            byte b = i == end ? delimiter : buf.get(i);
+            boolean separator = blanks ? (b == ' ' || b == '\t') : b == delimiter;
+            if (!separator) {
+                continue;
+            }
+            if (blanks && i == fieldStart) {
+                // a run of blanks
+                fieldStart = i + 1;
+                continue;
+            }
+
+            int s = fieldStart, e = i;
+            if (format == Format.CSV && e - s >= 2 && buf.get(s) == '"' && buf.get(e - 1) == '"') {
+                s++;
+                e--;
+            }
+            if (field == keyField) {
+                fields[0] = s;
+                fields[1] = e;
+            } else if (field == valueField) {
+                fields[2] = s;
+                fields[3] = e;
+            }
+            field++;
+            fieldStart = i + 1;
+        }
+        return fields[0] != -1 && fields[2] != -1;
+    }
+
+    /**
+     * Puts the fewest networks covering addresses from to to, inclusive.
+     */
+    static void putRange(IPv4RadixIntTree tree, long from, long to, int value) {
+        while (from <= to) {
+            // largest block aligned at from and not past to
+            int bits = from == 0 ? 32 : Long.numberOfTrailingZeros(from);
+            while (bits > 0 && from + (1L << bits) - 1 > to) {
+                bits--;
+            }
+            tree.put(from, (0xFFFFFFFFL << bits) & 0xFFFFFFFFL, value);
+            from += 1L << bits;
+        }
+    }
+
+    /**
+     * Parses a dotted quad IPv4 address.
+     * @return address, or -1 if bytes [start, end) are not a valid address
+     */
+    static long parseIPv4(ByteBuffer buf, int start, int end) {
+        long address = 0;
+        int octet = 0, digits = 0, dots = 0;
+        for (int i = start; i < end; ++i) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                octet = octet * 10 + (b - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (b == '.' && digits != 0 && dots < 3) {
+                address = (address << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    /**
+     * Parses an int, with an optional '-' sign if decimal.
+     * @return value, or Long.MIN_VALUE if bytes [start, end) are not a valid int
+     */
+    static long parseValue(ByteBuffer buf, int start, int end, int radix) {
+        boolean negative = radix == 10 && end > start && buf.get(start) == '-';
+        if (negative) {
+            start++;
+        }
+        if (start == end || end - start > (radix == 16 ? 8 : 10)) {
+            return Long.MIN_VALUE;
+        }
+
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            byte b = buf.get(i);
+            int digit;
+            if (b >= '0' && b <= '9') {
+                digit = b - '0';
+            } else if (radix == 16 && b >= 'a' && b <= 'f') {
+                digit = b - 'a' + 10;
+            } else if (radix == 16 && b >= 'A' && b <= 'F') {
+                digit = b - 'A' + 10;
+            } else {
+                return Long.MIN_VALUE;
+            }
+            value = value * radix + digit;
+        }
+
+        if (radix == 16) {
+            return (int) value;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Long.MIN_VALUE;
+        }
+        return value;
+    }
+
+    private static String string(ByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[Math.min(end - start, 256)];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = buf.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    public static class Result {
+        long lines;
+        long prefixes;
+        long badLines;
+        long[] badLineOffsets = new long[0];
+        long bytes;
+        long nanos;
+
+        void addBadLine(long offset) {
+            if (badLines < MAX_BAD_LINE_OFFSETS) {
+                badLineOffsets = Arrays.copyOf(badLineOffsets, (int) badLines + 1);
+                badLineOffsets[(int) badLines] = offset;
+            }
+            badLines++;
+        }
+
+        /**
+         * @return a number of lines read, skipped ones included
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return a number of lines put into the tree
+         */
+        public long getPrefixes() {
+            return prefixes;
+        }
+
+        public long getBadLines() {
+            return badLines;
+        }
+
+        /**
+         * @return byte offsets of the first 100 bad lines
+         */
+        public long[] getBadLineOffsets() {
+            return badLineOffsets.clone();
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public String toString() {
+            return "lines " + lines + ", prefixes " + prefixes + ", bad lines " + badLines;
+        }
+    }
+}
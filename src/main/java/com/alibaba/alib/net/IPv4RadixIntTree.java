@@ -19,16 +19,15 @@ package com.alibaba.alib.net;
 
 import java.io.*;
 import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
-import java.util.Arrays;
 
 /**
  * A minimalistic, memory size-savvy and fairly fast radix tree (AKA Patricia trie)
  * implementation that uses IPv4 addresses with netmasks as keys and 32-bit signed
  * integers as values.
  *
- * This tree is generally uses in read-only manner: there are no key removal operation
- * and the whole thing works best in pre-allocated fashion.
+ * This tree is generally uses in read-only manner: removal only clears values, and the
+ * whole thing works best in pre-allocated fashion. It is not thread safe, see
+ * {@link ConcurrentIPv4RadixIntTree} for live updates under concurrent lookups.
  */
 public class IPv4RadixIntTree {
     /**
@@ -37,17 +36,17 @@ public class IPv4RadixIntTree {
      */
     public static final int NO_VALUE = -1;
 
-    private static final int NULL_PTR = -1;
-    private static final int ROOT_PTR = 0;
+    static final int NULL_PTR = -1;
+    static final int ROOT_PTR = 0;
 
-    private static final long MAX_IPV4_BIT = 0x80000000L;
+    static final long MAX_IPV4_BIT = 0x80000000L;
 
-    private int[] rights;
-    private int[] lefts;
-    private int[] values;
+    int[] rights;
+    int[] lefts;
+    int[] values;
 
-    private int allocatedSize;
-    private int size;
+    int allocatedSize;
+    int size;
 
     /**
      * Initializes IPv4 radix tree with default capacity of 1024 nodes. It should
@@ -131,6 +130,118 @@ public class IPv4RadixIntTree {
         values[node] = value;
     }
 
+    /**
+     * Removes a value stored under a key. Nodes are kept, use {@link #copy()} after a lot of
+     * removals to get rid of them.
+     * @param key IPv4 network prefix
+     * @param mask IPv4 netmask in networked byte order format
+     * @return removed value, or {@link #NO_VALUE} if there was none
+     */
+    public int remove(long key, long mask) {
+        long bit = MAX_IPV4_BIT;
+        int node = ROOT_PTR;
+
+        while ((bit & mask) != 0) {
+            node = ((key & bit) != 0) ? rights[node] : lefts[node];
+            if (node == NULL_PTR)
+                return NO_VALUE;
+            bit >>= 1;
+        }
+
+        int value = values[node];
+        values[node] = NO_VALUE;
+        return value;
+    }
+
+    /**
+     * Returns a compact copy of a tree: branches without values, left behind by
+     * {@link #remove(long, long)}, are dropped.
+     * @return a new tree with the same prefixes and values
+     */
+    public IPv4RadixIntTree copy() {
+        final IPv4RadixIntTree tree = new IPv4RadixIntTree(Math.max(16, size));
+        forEachPrefix(new PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                tree.put(prefix, (0xFFFFFFFFL << (32 - cidr)) & 0xFFFFFFFFL, value);
+            }
+        });
+        return tree;
+    }
+
+    /**
+     * @return an exact copy of node arrays with room for capacity nodes
+     */
+    IPv4RadixIntTree copy(int capacity) {
+        IPv4RadixIntTree tree = new IPv4RadixIntTree(Math.max(capacity, size));
+        System.arraycopy(lefts, 0, tree.lefts, 0, size);
+        System.arraycopy(rights, 0, tree.rights, 0, size);
+        System.arraycopy(values, 0, tree.values, 0, size);
+        tree.size = size;
+        return tree;
+    }
+
+    /**
+     * Renumbers nodes into van Emde Boas order and trims node arrays to size. The nodes of
+     * every subtree of 2, 4, 8 or 16 levels end up next to each other, so a lookup touches a
+     * few cache lines and pages instead of one per level, whatever the insertion order was.
+     * Lookup results don't change; later puts append nodes in insertion order again.
+     */
+    public void optimize() {
+        int[] order = new int[size];
+        int n = layout(ROOT_PTR, 33, order, 0);
+        if (n != size) {
+            throw new IllegalStateException("unreachable nodes : " + (size - n));
+        }
+
+        int[] index = new int[size];
+        for (int i = 0; i < size; ++i) {
+            index[order[i]] = i;
+        }
+
+        int[] newLefts = new int[size];
+        int[] newRights = new int[size];
+        int[] newValues = new int[size];
+        for (int i = 0; i < size; ++i) {
+            int node = order[i];
+            newLefts[i] = lefts[node] == NULL_PTR ? NULL_PTR : index[lefts[node]];
+            newRights[i] = rights[node] == NULL_PTR ? NULL_PTR : index[rights[node]];
+            newValues[i] = values[node];
+        }
+
+        lefts = newLefts;
+        rights = newRights;
+        values = newValues;
+        allocatedSize = size;
+    }
+
+    /**
+     * Appends nodes of the top height levels below node in van Emde Boas order: the top
+     * half of the levels first, then each subtree rooted below it.
+     * @return position in order after the last appended node
+     */
+    private int layout(int node, int height, int[] order, int n) {
+        if (height == 1) {
+            order[n++] = node;
+            return n;
+        }
+        int top = height / 2;
+        n = layout(node, top, order, n);
+        return layoutBottom(node, top, height - top, order, n);
+    }
+
+    private int layoutBottom(int node, int depth, int height, int[] order, int n) {
+        if (depth == 0) {
+            return layout(node, height, order, n);
+        }
+        if (lefts[node] != NULL_PTR) {
+            n = layoutBottom(lefts[node], depth - 1, height, order, n);
+        }
+        if (rights[node] != NULL_PTR) {
+            n = layoutBottom(rights[node], depth - 1, height, order, n);
+        }
+        return n;
+    }
+
     private void expandAllocatedSize() {
         int oldSize = allocatedSize;
         allocatedSize = allocatedSize * 2;
@@ -190,12 +301,51 @@ public class IPv4RadixIntTree {
     }
 
 
+    /**
+     * Receives prefixes of a tree, see {@link #forEachPrefix(PrefixVisitor)}.
+     */
+    public interface PrefixVisitor {
+        /**
+         * @param prefix IPv4 network prefix, bits below cidr are zero
+         * @param cidr netmask length, 0 to 32
+         * @param value value stored under the prefix
+         */
+        void visit(long prefix, int cidr, int value);
+    }
+
+    /**
+     * Visits every prefix holding a value, in address order, less specific prefixes first.
+     */
+    public void forEachPrefix(PrefixVisitor visitor) {
+        forEachPrefix(visitor, ROOT_PTR, 0, 0);
+    }
+
+    private void forEachPrefix(PrefixVisitor visitor, int node, int depth, long prefix) {
+        if (values[node] != NO_VALUE) {
+            visitor.visit(prefix, depth, values[node]);
+        }
+        if (lefts[node] != NULL_PTR) {
+            forEachPrefix(visitor, lefts[node], depth + 1, prefix);
+        }
+        if (rights[node] != NULL_PTR) {
+            forEachPrefix(visitor, rights[node], depth + 1, prefix | (MAX_IPV4_BIT >>> depth));
+        }
+    }
+
     /**
      * Returns a size of tree in number of nodes (not number of prefixes stored).
      * @return a number of nodes in current tree
      */
     public int size() { return size; }
 
+    /**
+     * Returns an approximate memory footprint of node arrays, including unused capacity.
+     * @return size of node arrays in bytes
+     */
+    public long memorySize() {
+        return (long) allocatedSize * 3 * 4;
+    }
+
     /**
      * Selects a value for a given IPv4 address, traversing tree and choosing
      * most specific value available for a given address.
@@ -230,137 +380,14 @@ public class IPv4RadixIntTree {
      * config files has lines ending with ";")
      * @return a fully constructed IPv4 radix tree from that file
      * @throws IOException
+     * @see IPv4PrefixLoader for other formats and skipping bad lines
      */
     public static IPv4RadixIntTree loadFromLocalFile(String filename, boolean nginxFormat) throws IOException {
-        byte[] bytes = new byte[1024 * 16];
-
-        int lines = countLines(filename, bytes);
-        IPv4RadixIntTree tr = new IPv4RadixIntTree(lines);
-        FileInputStream in = new FileInputStream(filename);
-        try {
-            tr.init(in, nginxFormat, bytes);
-        } finally {
-            in.close();
-        }
-
-        return tr;
-    }
-
-    private int readLine(InputStream in, ByteBuffer buf, byte[] dest) throws IOException {
-        byte[] bytes = buf.array();
-        int limit = buf.limit();
-
-        int pos = buf.position();
-        int remaining = limit - pos;
-        if (remaining < 32) {
-            if (remaining > 0) {
-                System.arraycopy(bytes, pos, bytes, 0, remaining);
-                buf.position(pos = 0);
-                buf.limit(limit = remaining);
-            }
-            int len = in.read(bytes, limit, bytes.length / 2);
-            if (len == -1) {
-                return -1;
-            }
-
-            if (len > 0) {
-                limit += len;
-                buf.limit(limit);
-            }
-        }
-
-
-        for (int i = pos; i < limit; ++i) {
-            byte b = bytes[i];
-            if (b == '\n') {
-                int len = i - pos;
-                System.arraycopy(bytes, pos, dest, 0, len);
-                buf.position(i + 1);
-                return len;
-            }
-        }
-
-        return -1;
-    }
-
-    private void init(InputStream in, boolean nginxFormat, byte[] bytes) throws IOException {
-        ByteBuffer buf = ByteBuffer.wrap(bytes);
-        buf.flip();
-
-        byte[] line = new byte[32];
-        for (;;) {
-            int len = readLine(in, buf, line);
-
-            if (len == -1) {
-                break;
-            }
-
-            int b0 = 0, b1 = 0, b2 = 0, b3 = 0;
-            int cidr = 0, port = 0;
-            for (int i = 0
-                 , val = 0
-                 , p = 0
-                 ; i < len; ++i)
-            {
-                char ch = (char) line[i];
-
-                if (ch >= '0' && ch <= '9') {
-                    if (nginxFormat && p == 5) {
-                        val = val * 16 + (ch - '0');
-                    } else {
-                        val = val * 10 + (ch - '0');
-                    }
-                } else if (nginxFormat && ch >= 'a' && ch <= 'f') {
-                    val = val * 16 + (ch - 87);
-                } else if (ch == '.') {
-                    if (ch > 255) {
-                        throw new UnknownHostException("illegal ip : " + new String(line, 0, len, "iso-8859-1"));
-                    }
-
-                    if (p == 0) {
-                        b0 = val;
-                    } else if (p == 1) {
-                        b1 = val;
-                    } else if (p == 2) {
-                        b2 = val;
-                    } else {
-                        throw new UnknownHostException("illegal ip : " + new String(line, 0, len, "iso-8859-1"));
-                    }
-
-                    val = 0;
-                    p++;
-                } else if (ch == '\t' || ch == '/') {
-                    if (p == 3) {
-                        b3 = val;
-                        val = 0;
-                    } else if (p == 4) {
-                        cidr = val;
-                        val = 0;
-                    } else if (p == 5) {
-                        port = val;
-                    } else {
-                        throw new UnknownHostException("illegal ip : " + new String(line, 0, len, "iso-8859-1"));
-                    }
-                    p++;
-                } else if (ch == ';' && i == len - 1) {
-                    // skip
-                } else {
-                    throw new UnknownHostException("illegal ip : " + new String(line, 0, len, "iso-8859-1"));
-                }
-
-                if (i == len - 1) {
-                    port = val;
-                }
-            }
-
-            int address = b3 | (b2 << 8) | (b1 << 16) | (b0 << 24);
-            long ip = address & 0xFFFFFFFFL;
-            long netmask =  ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
-            put(ip, netmask, port);
-        }
+        return new IPv4PrefixLoader(nginxFormat ? IPv4PrefixLoader.Format.NGINX : IPv4PrefixLoader.Format.TSV)
+                .load(filename);
     }
 
-    private static long inet_aton(String line) throws UnknownHostException {
+    static long inet_aton(String line) throws UnknownHostException {
         int address = 0;
         for (int i = 0
              , len = line.length()
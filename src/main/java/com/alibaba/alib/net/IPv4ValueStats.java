@@ -0,0 +1,389 @@
+package com.alibaba.alib.net;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.MAX_IPV4_BIT;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NULL_PTR;
+import static com.alibaba.alib.net.IPv4RadixIntTree.ROOT_PTR;
+
+/**
+ * Per-value statistics of a {@link IPv4RadixIntTree}: how many addresses each value is
+ * selected for, the prefixes storing it and the values covering the most address space.
+ *
+ * {@link #build} computes them in one traversal of the node arrays, counting the addresses
+ * below a missing child as a whole instead of enumerating them. {@link #track} returns a
+ * {@link Counter} keeping the counts up to date while prefixes are put through it.
+ */
+public class IPv4ValueStats {
+    final Slots slots = new Slots();
+    // per slot, prefixes as prefix << 6 | cidr, in address order
+    private long[][] lists = new long[16][];
+
+    private IPv4ValueStats() {
+    }
+
+    /**
+     * Computes the statistics of a tree as it is now.
+     */
+    public static IPv4ValueStats build(IPv4RadixIntTree tree) {
+        IPv4ValueStats stats = new IPv4ValueStats();
+        stats.visit(tree, ROOT_PTR, 0, 0, NO_VALUE);
+        return stats;
+    }
+
+    /**
+     * Starts counting a tree; the counts stay valid as long as the tree is modified only
+     * through the returned counter.
+     */
+    public static Counter track(IPv4RadixIntTree tree) {
+        return new Counter(tree);
+    }
+
+    /**
+     * @param inherited value of the closest ancestor having one
+     */
+    private void visit(IPv4RadixIntTree tree, int node, int depth, long prefix, int inherited) {
+        int value = tree.values[node];
+        if (value != NO_VALUE) {
+            int slot = slots.slot(value);
+            if (slot == lists.length) {
+                lists = Arrays.copyOf(lists, slot * 2);
+            }
+            long[] list = lists[slot];
+            int n = slots.prefixes[slot]++;
+            if (list == null) {
+                list = lists[slot] = new long[4];
+            } else if (n == list.length) {
+                list = lists[slot] = Arrays.copyOf(list, n * 2);
+            }
+            list[n] = (prefix << 6) | depth;
+        } else {
+            value = inherited;
+        }
+
+        if (depth == 32) {
+            slots.add(value, 1);
+            return;
+        }
+
+        // a missing child is a block of addresses getting this node's value
+        long half = 1L << (31 - depth);
+        int left = tree.lefts[node];
+        int right = tree.rights[node];
+        if (left == NULL_PTR) {
+            slots.add(value, half);
+        } else {
+            visit(tree, left, depth + 1, prefix, value);
+        }
+        if (right == NULL_PTR) {
+            slots.add(value, half);
+        } else {
+            visit(tree, right, depth + 1, prefix | (MAX_IPV4_BIT >>> depth), value);
+        }
+    }
+
+    /**
+     * @return a number of addresses {@link IPv4RadixIntTree#selectValue(long)} returns the
+     * value for; for {@link IPv4RadixIntTree#NO_VALUE} the addresses of no prefix
+     */
+    public long addressCount(int value) {
+        return slots.addressCount(value);
+    }
+
+    /**
+     * @return a number of prefixes storing the value
+     */
+    public int prefixCount(int value) {
+        return slots.prefixCount(value);
+    }
+
+    /**
+     * Visits the prefixes storing a value, in address order.
+     */
+    public void forEachPrefix(int value, IPv4RadixIntTree.PrefixVisitor visitor) {
+        int slot = slots.find(value);
+        if (slot < 0) {
+            return;
+        }
+        long[] list = lists[slot];
+        for (int i = 0, n = slots.prefixes[slot]; i < n; ++i) {
+            visitor.visit(list[i] >>> 6, (int) (list[i] & 0x3f), value);
+        }
+    }
+
+    /**
+     * @return values stored in the tree
+     */
+    public int[] values() {
+        return slots.values();
+    }
+
+    /**
+     * @return up to n values covering the most addresses, most first
+     */
+    public int[] topValues(int n) {
+        return slots.topValues(n);
+    }
+
+    /**
+     * Address counts kept up to date while prefixes are put and removed. Prefix lists are
+     * not tracked, use {@link #stats()} for them.
+     */
+    public static class Counter {
+        private final IPv4RadixIntTree tree;
+        private final Slots slots;
+
+        Counter(IPv4RadixIntTree tree) {
+            this.tree = tree;
+            this.slots = build(tree).slots;
+        }
+
+        /**
+         * Puts a key-value pair in the tree, see {@link IPv4RadixIntTree#put(long, long, int)}.
+         */
+        public void put(long key, long mask, int value) {
+            update(key, mask, value);
+            tree.put(key, mask, value);
+        }
+
+        public void put(String ipNet, int value) throws UnknownHostException {
+            int pos = ipNet.indexOf('/');
+            long ip = IPv4RadixIntTree.inet_aton(ipNet.substring(0, pos));
+            int cidr = Integer.parseInt(ipNet.substring(pos + 1));
+            put(ip, ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL, value);
+        }
+
+        /**
+         * Removes a value from the tree, see {@link IPv4RadixIntTree#remove(long, long)}.
+         */
+        public int remove(long key, long mask) {
+            update(key, mask, NO_VALUE);
+            return tree.remove(key, mask);
+        }
+
+        /**
+         * Moves the addresses the prefix decides, those not under a more specific prefix,
+         * from their current value to the new one.
+         */
+        private void update(long key, long mask, int value) {
+            long bit = MAX_IPV4_BIT;
+            int depth = 0;
+            int node = ROOT_PTR;
+            int inherited = NO_VALUE;
+
+            while ((bit & mask) != 0) {
+                if (tree.values[node] != NO_VALUE)
+                    inherited = tree.values[node];
+                node = ((key & bit) != 0) ? tree.rights[node] : tree.lefts[node];
+                if (node == NULL_PTR)
+                    break;
+                bit >>= 1;
+                depth++;
+            }
+
+            int old = NO_VALUE;
+            long decided;
+            if (node == NULL_PTR) {
+                // a new branch, nothing below it yet
+                while ((bit & mask) != 0) {
+                    bit >>= 1;
+                    depth++;
+                }
+                decided = 1L << (32 - depth);
+            } else {
+                old = tree.values[node];
+                decided = (1L << (32 - depth)) - covered(node, depth);
+            }
+
+            // slot() may grow the arrays, so it is called before indexing them
+            if (old != NO_VALUE) {
+                int slot = slots.slot(old);
+                slots.prefixes[slot]--;
+            }
+            if (value != NO_VALUE) {
+                int slot = slots.slot(value);
+                slots.prefixes[slot]++;
+            }
+
+            int before = old != NO_VALUE ? old : inherited;
+            int after = value != NO_VALUE ? value : inherited;
+            if (before != after) {
+                slots.add(before, -decided);
+                slots.add(after, decided);
+            }
+        }
+
+        /**
+         * @return a number of addresses below node under a more specific prefix
+         */
+        private long covered(int node, int depth) {
+            if (depth == 32) {
+                return 0;
+            }
+            long covered = 0;
+            int left = tree.lefts[node];
+            if (left != NULL_PTR) {
+                covered += tree.values[left] != NO_VALUE ? 1L << (31 - depth) : covered(left, depth + 1);
+            }
+            int right = tree.rights[node];
+            if (right != NULL_PTR) {
+                covered += tree.values[right] != NO_VALUE ? 1L << (31 - depth) : covered(right, depth + 1);
+            }
+            return covered;
+        }
+
+        /**
+         * @see IPv4ValueStats#addressCount(int)
+         */
+        public long addressCount(int value) {
+            return slots.addressCount(value);
+        }
+
+        public int prefixCount(int value) {
+            return slots.prefixCount(value);
+        }
+
+        public int[] values() {
+            return slots.values();
+        }
+
+        public int[] topValues(int n) {
+            return slots.topValues(n);
+        }
+
+        /**
+         * @return statistics including prefix lists, computed from the tree
+         */
+        public IPv4ValueStats stats() {
+            return build(tree);
+        }
+
+        public IPv4RadixIntTree getTree() {
+            return tree;
+        }
+    }
+
+    /**
+     * Counts per value, in slots found by open addressing on the value.
+     */
+    static final class Slots {
+        int[] keys = new int[16];
+        long[] addresses = new long[16];
+        int[] prefixes = new int[16];
+        int size;
+        long unassigned;
+
+        // slot + 1, 0 if empty
+        private int[] table = new int[32];
+
+        int find(int value) {
+            int mask = table.length - 1;
+            for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+                int slot = table[i] - 1;
+                if (slot < 0 || keys[slot] == value) {
+                    return slot;
+                }
+            }
+        }
+
+        int slot(int value) {
+            int mask = table.length - 1;
+            int i = hash(value) & mask;
+            for (; table[i] != 0; i = (i + 1) & mask) {
+                if (keys[table[i] - 1] == value) {
+                    return table[i] - 1;
+                }
+            }
+
+            int slot = size++;
+            if (slot == keys.length) {
+                keys = Arrays.copyOf(keys, slot * 2);
+                addresses = Arrays.copyOf(addresses, slot * 2);
+                prefixes = Arrays.copyOf(prefixes, slot * 2);
+            }
+            keys[slot] = value;
+            table[i] = slot + 1;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int slot = 0; slot < size; ++slot) {
+                int i = hash(keys[slot]) & mask;
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = slot + 1;
+            }
+        }
+
+        private static int hash(int value) {
+            int h = value * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        void add(int value, long count) {
+            if (value == NO_VALUE) {
+                unassigned += count;
+            } else {
+                int slot = slot(value);
+                addresses[slot] += count;
+            }
+        }
+
+        long addressCount(int value) {
+            if (value == NO_VALUE) {
+                return unassigned;
+            }
+            int slot = find(value);
+            return slot < 0 ? 0 : addresses[slot];
+        }
+
+        int prefixCount(int value) {
+            int slot = find(value);
+            return slot < 0 ? 0 : prefixes[slot];
+        }
+
+        int[] values() {
+            int[] values = new int[size];
+            int n = 0;
+            for (int slot = 0; slot < size; ++slot) {
+                if (prefixes[slot] > 0) {
+                    values[n++] = keys[slot];
+                }
+            }
+            values = Arrays.copyOf(values, n);
+            Arrays.sort(values);
+            return values;
+        }
+
+        int[] topValues(int n) {
+            Integer[] order = new Integer[size];
+            int count = 0;
+            for (int slot = 0; slot < size; ++slot) {
+                if (prefixes[slot] > 0) {
+                    order[count++] = slot;
+                }
+            }
+            Arrays.sort(order, 0, count, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    int c = Long.compare(addresses[b], addresses[a]);
+                    return c != 0 ? c : Integer.compare(keys[a], keys[b]);
+                }
+            });
+
+            int[] top = new int[Math.min(n, count)];
+            for (int i = 0; i < top.length; ++i) {
+                top[i] = keys[order[i]];
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.alibaba.alib.net;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.MAX_IPV4_BIT;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NULL_PTR;
+import static com.alibaba.alib.net.IPv4RadixIntTree.ROOT_PTR;
+
+/**
+ * Many versions of a {@link IPv4RadixIntTree} sharing their unchanged nodes, for looking up
+ * addresses as of a past release, for example when replaying old logs.
+ *
+ * Versions are persistent: a committed node is never modified. Changes to the working
+ * version copy the path from the root to the changed node, and {@link #addVersion} keeps
+ * every subtree equal to the one of the previous version, so each version only adds the
+ * nodes it changes. Versions are numbered from 0 in commit order; mapping dates to
+ * versions is left to the caller. Lookups of committed versions do not allocate. Not
+ * thread safe while adding versions.
+ */
+public class IPv4VersionedRadixIntTree {
+    int[] rights;
+    int[] lefts;
+    int[] values;
+    int size;
+
+    // nodes below frozen are committed and must not be modified
+    private int frozen;
+    // root of the working version, NULL_PTR while it is empty
+    private int working = NULL_PTR;
+    private boolean dirty;
+
+    private int[] roots = new int[16];
+    private int versions;
+
+    public IPv4VersionedRadixIntTree() {
+        this(1024);
+    }
+
+    /**
+     * @param allocatedSize initial capacity in nodes, for all versions
+     */
+    public IPv4VersionedRadixIntTree(int allocatedSize) {
+        allocatedSize = Math.max(16, allocatedSize);
+        rights = new int[allocatedSize];
+        lefts = new int[allocatedSize];
+        values = new int[allocatedSize];
+    }
+
+    /**
+     * Commits a copy of a tree as the next version. Subtrees equal to the ones of the last
+     * committed version are shared with it, branches without values are dropped.
+     * @return the new version
+     * @throws IllegalStateException if the working version has uncommitted changes
+     */
+    public int addVersion(IPv4RadixIntTree tree) {
+        if (dirty) {
+            throw new IllegalStateException("uncommitted changes");
+        }
+        int last = versions == 0 ? NULL_PTR : roots[versions - 1];
+        // NULL_PTR for an empty tree
+        working = share(tree, ROOT_PTR, last);
+        return commit();
+    }
+
+    /**
+     * @param node node of tree
+     * @param prev node of the previous version at the same prefix, or NULL_PTR
+     * @return node of the new version, or NULL_PTR if the subtree has no values
+     */
+    private int share(IPv4RadixIntTree tree, int node, int prev) {
+        int treeLeft = tree.lefts[node];
+        int treeRight = tree.rights[node];
+        int left = treeLeft == NULL_PTR ? NULL_PTR
+                : share(tree, treeLeft, prev == NULL_PTR ? NULL_PTR : lefts[prev]);
+        int right = treeRight == NULL_PTR ? NULL_PTR
+                : share(tree, treeRight, prev == NULL_PTR ? NULL_PTR : rights[prev]);
+        int value = tree.values[node];
+
+        if (left == NULL_PTR && right == NULL_PTR && value == NO_VALUE) {
+            return NULL_PTR;
+        }
+        if (prev != NULL_PTR && lefts[prev] == left && rights[prev] == right && values[prev] == value) {
+            return prev;
+        }
+        return newNode(left, right, value);
+    }
+
+    /**
+     * Puts a key-value pair in the working version, see {@link IPv4RadixIntTree#put(long, long, int)}.
+     */
+    public void put(long key, long mask, int value) {
+        working = put(working, key, mask, MAX_IPV4_BIT, value);
+        dirty = true;
+    }
+
+    public void put(String ipNet, int value) throws UnknownHostException {
+        int pos = ipNet.indexOf('/');
+        long ip = IPv4RadixIntTree.inet_aton(ipNet.substring(0, pos));
+        int cidr = Integer.parseInt(ipNet.substring(pos + 1));
+        put(ip, ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL, value);
+    }
+
+    /**
+     * @return the node replacing node, a copy if it is committed
+     */
+    private int put(int node, long key, long mask, long bit, int value) {
+        node = node == NULL_PTR ? newNode(NULL_PTR, NULL_PTR, NO_VALUE) : mutable(node);
+        if ((bit & mask) == 0) {
+            values[node] = value;
+            return node;
+        }
+
+        if ((key & bit) != 0) {
+            int child = put(rights[node], key, mask, bit >> 1, value);
+            rights[node] = child;
+        } else {
+            int child = put(lefts[node], key, mask, bit >> 1, value);
+            lefts[node] = child;
+        }
+        return node;
+    }
+
+    /**
+     * Removes a value from the working version, see {@link IPv4RadixIntTree#remove(long, long)}.
+     * @return removed value, or {@link IPv4RadixIntTree#NO_VALUE} if there was none
+     */
+    public int remove(long key, long mask) {
+        // nothing is copied unless the value exists
+        long bit = MAX_IPV4_BIT;
+        int node = working;
+        while (node != NULL_PTR && (bit & mask) != 0) {
+            node = ((key & bit) != 0) ? rights[node] : lefts[node];
+            bit >>= 1;
+        }
+        if (node == NULL_PTR) {
+            return NO_VALUE;
+        }
+
+        int value = values[node];
+        if (value != NO_VALUE) {
+            put(key, mask, NO_VALUE);
+        }
+        return value;
+    }
+
+    /**
+     * Makes the working version a new version; later changes apply to a copy of it.
+     * @return the new version
+     */
+    public int commit() {
+        if (versions == roots.length) {
+            roots = Arrays.copyOf(roots, versions * 2);
+        }
+        roots[versions] = working;
+        frozen = size;
+        dirty = false;
+        return versions++;
+    }
+
+    /**
+     * Selects a value for a given IPv4 address as of a version, see
+     * {@link IPv4RadixIntTree#selectValue(long)}.
+     * @param version a committed version
+     */
+    public int selectValue(int version, long key) {
+        if (version < 0 || version >= versions) {
+            throw new IllegalArgumentException("version " + version + ", versions " + versions);
+        }
+
+        long bit = MAX_IPV4_BIT;
+        int value = NO_VALUE;
+        int node = roots[version];
+
+        while (node != NULL_PTR) {
+            if (values[node] != NO_VALUE)
+                value = values[node];
+            node = ((key & bit) != 0) ? rights[node] : lefts[node];
+            bit >>= 1;
+        }
+
+        return value;
+    }
+
+    public int selectValue(int version, String ip) throws UnknownHostException {
+        return selectValue(version, IPv4RadixIntTree.inet_aton(ip));
+    }
+
+    /**
+     * Selects a value from the working version, including uncommitted changes.
+     */
+    public int selectValue(long key) {
+        long bit = MAX_IPV4_BIT;
+        int value = NO_VALUE;
+        int node = working;
+
+        while (node != NULL_PTR) {
+            if (values[node] != NO_VALUE)
+                value = values[node];
+            node = ((key & bit) != 0) ? rights[node] : lefts[node];
+            bit >>= 1;
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns a standalone copy of a version, for example to publish it.
+     */
+    public IPv4RadixIntTree tree(int version) {
+        if (version < 0 || version >= versions) {
+            throw new IllegalArgumentException("version " + version + ", versions " + versions);
+        }
+        IPv4RadixIntTree tree = new IPv4RadixIntTree(1024);
+        if (roots[version] != NULL_PTR) {
+            copy(tree, roots[version], 0, 0);
+        }
+        return tree.copy(tree.size());
+    }
+
+    private void copy(IPv4RadixIntTree tree, int node, int depth, long prefix) {
+        if (values[node] != NO_VALUE) {
+            tree.put(prefix, (0xFFFFFFFFL << (32 - depth)) & 0xFFFFFFFFL, values[node]);
+        }
+        if (lefts[node] != NULL_PTR) {
+            copy(tree, lefts[node], depth + 1, prefix);
+        }
+        if (rights[node] != NULL_PTR) {
+            copy(tree, rights[node], depth + 1, prefix | (MAX_IPV4_BIT >>> depth));
+        }
+    }
+
+    /**
+     * @return a number of committed versions
+     */
+    public int versions() {
+        return versions;
+    }
+
+    /**
+     * @return a number of nodes of all versions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return size of node arrays in bytes, including unused capacity
+     */
+    public long memorySize() {
+        return (long) values.length * 3 * 4 + (long) roots.length * 4;
+    }
+
+    private int mutable(int node) {
+        if (node >= frozen) {
+            return node;
+        }
+        return newNode(lefts[node], rights[node], values[node]);
+    }
+
+    private int newNode(int left, int right, int value) {
+        if (size == values.length) {
+            int capacity = size * 2;
+            rights = Arrays.copyOf(rights, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        int node = size++;
+        lefts[node] = left;
+        rights[node] = right;
+        values[node] = value;
+        return node;
+    }
+}
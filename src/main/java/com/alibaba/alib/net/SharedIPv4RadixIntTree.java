@@ -0,0 +1,321 @@
+package com.alibaba.alib.net;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.UnknownHostException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static com.alibaba.alib.net.IPv4RadixIntTree.MAX_IPV4_BIT;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NO_VALUE;
+import static com.alibaba.alib.net.IPv4RadixIntTree.NULL_PTR;
+import static com.alibaba.alib.net.IPv4RadixIntTree.ROOT_PTR;
+
+/**
+ * A read-only {@link IPv4RadixIntTree} shared by processes on a host through memory mapped
+ * files, by default under /dev/shm, so the host holds one copy of it in RAM.
+ *
+ * A writer process calls {@link #publish} to write a tree into an immutable data file
+ * "name.version" and then atomically bumps the version in the header file "name.header".
+ * Readers map the data file of the current version and, on every lookup, compare their
+ * version with the header: a new version is mapped on the first lookup after the bump, so
+ * reloads propagate within milliseconds. Lookups take no locks; a lookup running
+ * during a swap is answered from the old version, whose mapping stays valid after its file
+ * is deleted. Nodes are read through bounds checked buffers, which also keep the mapping
+ * alive while a lookup uses it, and node indices are checked when a file is mapped, so a
+ * corrupted file is rejected instead of being read out of bounds.
+ *
+ * Files use the native byte order and are not meant to be moved between hosts.
+ */
+public class SharedIPv4RadixIntTree {
+    public static final String DEFAULT_DIR = "/dev/shm";
+
+    static final int MAGIC = 0x49505431; // "IPT1"
+
+    // header file: magic, padding, version
+    static final int HEADER_SIZE = 64;
+    static final int HEADER_VERSION = 8;
+
+    // data file: magic, node count, version, then lefts, rights and values
+    static final int DATA_SIZE = 4;
+    static final int DATA_VERSION = 8;
+    static final int DATA_NODES = 16;
+
+    private final File dir;
+    private final String name;
+
+    private final MappedByteBuffer header;
+
+    private volatile Snapshot snapshot;
+    private volatile long failedVersion = -1;
+
+    /**
+     * Maps the current version of a tree published under /dev/shm.
+     */
+    public SharedIPv4RadixIntTree(String name) throws IOException {
+        this(new File(DEFAULT_DIR), name);
+    }
+
+    /**
+     * Maps the current version of a tree published in a given directory.
+     * @throws FileNotFoundException if no version was published yet
+     */
+    public SharedIPv4RadixIntTree(File dir, String name) throws IOException {
+        this.dir = dir;
+        this.name = name;
+
+        File headerFile = new File(dir, name + ".header");
+        if (!headerFile.exists()) {
+            throw new FileNotFoundException(headerFile.getPath());
+        }
+        header = mapHeader(headerFile);
+        snapshot = load();
+    }
+
+    /**
+     * Writes a tree as the next version of name in dir and makes readers switch to it.
+     * Writers of the same name are serialized by a file lock.
+     * @return the published version
+     */
+    public static long publish(IPv4RadixIntTree tree, File dir, String name) throws IOException {
+        File headerFile = new File(dir, name + ".header");
+        RandomAccessFile file = new RandomAccessFile(headerFile, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                MappedByteBuffer header = mapHeader(channel);
+                long version = header.getLong(HEADER_VERSION) + 1;
+
+                File data = new File(dir, name + "." + version);
+                File tmp = new File(dir, name + "." + version + ".tmp");
+                write(tree, version, tmp);
+                Files.move(tmp.toPath(), data.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+                header.putLong(HEADER_VERSION, version);
+                header.force();
+
+                // readers of older versions keep their mappings
+                for (long v = version - 1; v > 0; --v) {
+                    if (!new File(dir, name + "." + v).delete()) {
+                        break;
+                    }
+                }
+                return version;
+            } finally {
+                lock.release();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    public static long publish(IPv4RadixIntTree tree, String name) throws IOException {
+        return publish(tree, new File(DEFAULT_DIR), name);
+    }
+
+    private static void write(IPv4RadixIntTree tree, long version, File file) throws IOException {
+        int size = tree.size;
+        long length = DATA_NODES + (long) size * 3 * 4;
+
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(length);
+            MappedByteBuffer buf = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buf.order(ByteOrder.nativeOrder());
+            buf.putInt(0, MAGIC);
+            buf.putInt(DATA_SIZE, size);
+            buf.putLong(DATA_VERSION, version);
+
+            buf.position(DATA_NODES);
+            IntBuffer ints = buf.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+            ints.put(tree.lefts, 0, size);
+            ints.put(tree.rights, 0, size);
+            ints.put(tree.values, 0, size);
+            buf.force();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static MappedByteBuffer mapHeader(File headerFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(headerFile, "r");
+        try {
+            MappedByteBuffer header = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.order(ByteOrder.nativeOrder()).getInt(0) != MAGIC) {
+                throw new IOException("not a tree header : " + headerFile);
+            }
+            return header;
+        } finally {
+            file.close();
+        }
+    }
+
+    private static MappedByteBuffer mapHeader(FileChannel channel) throws IOException {
+        boolean created = channel.size() == 0;
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.nativeOrder());
+        if (created) {
+            header.putInt(0, MAGIC);
+        } else if (header.getInt(0) != MAGIC) {
+            throw new IOException("not a tree header");
+        }
+        return header;
+    }
+
+    /**
+     * Maps the data file of the current version, retrying if a writer deletes it meanwhile.
+     */
+    private Snapshot load() throws IOException {
+        for (int i = 0; ; ++i) {
+            long version = header.getLong(HEADER_VERSION);
+            File data = new File(dir, name + "." + version);
+            RandomAccessFile file;
+            try {
+                file = new RandomAccessFile(data, "r");
+            } catch (FileNotFoundException e) {
+                if (i < 10 && version != header.getLong(HEADER_VERSION)) {
+                    continue;
+                }
+                throw e;
+            }
+
+            try {
+                FileChannel channel = file.getChannel();
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buf.order(ByteOrder.nativeOrder());
+                if (buf.limit() < DATA_NODES
+                        || buf.getInt(0) != MAGIC
+                        || buf.getLong(DATA_VERSION) != version
+                        || buf.limit() != DATA_NODES + (long) buf.getInt(DATA_SIZE) * 3 * 4) {
+                    throw new IOException("corrupted tree : " + data);
+                }
+                Snapshot s = new Snapshot(buf, version);
+                if (!s.valid()) {
+                    throw new IOException("corrupted tree : " + data);
+                }
+                return s;
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    private Snapshot refresh() {
+        synchronized (this) {
+            Snapshot s = snapshot;
+            long version = header.getLong(HEADER_VERSION);
+            if (version == s.version || version == failedVersion) {
+                return s;
+            }
+            try {
+                return snapshot = load();
+            } catch (IOException e) {
+                // keep serving the old version until the next one
+                failedVersion = version;
+                return s;
+            }
+        }
+    }
+
+    /**
+     * Selects a value for a given IPv4 address, see {@link IPv4RadixIntTree#selectValue(long)},
+     * switching to a newly published version first.
+     */
+    public int selectValue(long key) {
+        // reading the volatile snapshot first keeps the header read from being hoisted
+        Snapshot s = snapshot;
+        long version = header.getLong(HEADER_VERSION);
+        if (version != s.version && version != failedVersion) {
+            s = refresh();
+        }
+        return s.selectValue(key);
+    }
+
+    public int selectValue(String ip) throws UnknownHostException {
+        return selectValue(IPv4RadixIntTree.inet_aton(ip));
+    }
+
+    /**
+     * @return version answering lookups, lags the published one until the next lookup
+     */
+    public long version() {
+        return snapshot.version;
+    }
+
+    /**
+     * @return a number of nodes of the current version
+     */
+    public int size() {
+        return snapshot.size;
+    }
+
+    static final class Snapshot {
+        final long version;
+        final int size;
+        // views of the mapping, referencing it as long as a lookup uses them
+        private final IntBuffer lefts;
+        private final IntBuffer rights;
+        private final IntBuffer values;
+
+        Snapshot(MappedByteBuffer buf, long version) {
+            this.version = version;
+            this.size = buf.getInt(DATA_SIZE);
+            this.lefts = view(buf, DATA_NODES);
+            this.rights = view(buf, DATA_NODES + size * 4);
+            this.values = view(buf, DATA_NODES + size * 8);
+        }
+
+        private IntBuffer view(MappedByteBuffer buf, int offset) {
+            buf.position(offset);
+            buf.limit(offset + size * 4);
+            IntBuffer view = buf.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+            buf.clear();
+            return view;
+        }
+
+        /**
+         * @return true if every child index is {@link IPv4RadixIntTree#NULL_PTR} or a node
+         */
+        boolean valid() {
+            if (size <= ROOT_PTR) {
+                return false;
+            }
+            for (int i = 0; i < size; ++i) {
+                int left = lefts.get(i);
+                int right = rights.get(i);
+                if ((left != NULL_PTR && (left < 1 || left >= size))
+                        || (right != NULL_PTR && (right < 1 || right >= size))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int selectValue(long key) {
+            long bit = MAX_IPV4_BIT;
+            int value = NO_VALUE;
+            int node = ROOT_PTR;
+
+            while (node != NULL_PTR) {
+                int v = values.get(node);
+                if (v != NO_VALUE)
+                    value = v;
+                // a node below /32 only exists in a corrupted file, which must not loop
+                if (bit == 0)
+                    break;
+                node = ((key & bit) != 0) ? rights.get(node) : lefts.get(node);
+                bit >>= 1;
+            }
+
+            return value;
+        }
+    }
+}
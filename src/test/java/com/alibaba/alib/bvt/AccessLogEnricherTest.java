@@ -0,0 +1,103 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.AccessLogEnricher;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+public class AccessLogEnricherTest extends TestCase {
+    String prefixFile = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+    String logFile = this.getClass().getClassLoader().getResource("test/test-nginx.txt").getFile();
+
+    public void testScaledNginx() throws IOException {
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(prefixFile, true);
+
+        File input = File.createTempFile("access", ".log");
+        input.deleteOnExit();
+        int lines = writeScaled(input, 50);
+
+        AccessLogEnricher enricher = new AccessLogEnricher(tr);
+        enricher.setDelimiter('\t');
+        enricher.setThreads(4);
+        enricher.setChunkSize(64 * 1024);
+        enricher.setBatchSize(100);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccessLogEnricher.Result result = enricher.enrich(input.getPath(), out);
+        assertEquals(lines, result.getLines());
+        assertEquals(0, result.getBadLines());
+        assertTrue(result.linesPerSecond() > 0);
+
+        BufferedReader br = new BufferedReader(new StringReader(out.toString("iso-8859-1")));
+        String l;
+        int n = 0;
+        while ((l = br.readLine()) != null) {
+            String[] c = l.split("\t", -1);
+            assertEquals(3, c.length);
+            assertEquals("Mismatch in line #" + n, c[1], c[2]);
+            n++;
+        }
+        assertEquals(lines, n);
+    }
+
+    public void testCombinedFormat() throws IOException {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        tr.put("10.0.0.0/8", 1);
+        tr.put("10.1.0.0/16", 2);
+
+        File input = File.createTempFile("access", ".log");
+        input.deleteOnExit();
+        OutputStream os = new FileOutputStream(input);
+        os.write(("10.1.2.3 - - [10/Oct/2020:13:55:36 +0800] \"GET / HTTP/1.1\" 200 612\r\n"
+                + "10.2.2.3 - - [10/Oct/2020:13:55:37 +0800] \"GET /a HTTP/1.1\" 404 0\n"
+                + "11.2.2.3 - - [10/Oct/2020:13:55:37 +0800] \"GET /b HTTP/1.1\" 200 1\n"
+                + "10.2.2.256 - - [10/Oct/2020:13:55:37 +0800] \"GET /c HTTP/1.1\" 200 1\n"
+                + "\n"
+                + "10.1.0.1 - - [10/Oct/2020:13:55:38 +0800] \"GET /d HTTP/1.1\" 200 2").getBytes("utf8"));
+        os.close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccessLogEnricher.Result result = new AccessLogEnricher(tr).enrich(input.getPath(), out);
+
+        String[] lines = out.toString("utf8").split("\n", -1);
+        assertEquals(7, lines.length);
+        assertTrue(lines[0], lines[0].endsWith("612\t2"));
+        assertTrue(lines[1], lines[1].endsWith("\t1"));
+        assertTrue(lines[2], lines[2].endsWith("\t-1"));
+        assertTrue(lines[3], lines[3].endsWith("\t-1"));
+        assertEquals("\t-1", lines[4]);
+        assertTrue(lines[5], lines[5].endsWith(" 2\t2"));
+        assertEquals("", lines[6]);
+
+        assertEquals(6, result.getLines());
+        assertEquals(2, result.getBadLines());
+    }
+
+    int writeScaled(File file, int times) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        BufferedReader br = new BufferedReader(new FileReader(logFile));
+        String l;
+        int lines = 0;
+        while ((l = br.readLine()) != null) {
+            buf.append(l).append('\n');
+            lines++;
+        }
+        br.close();
+
+        byte[] bytes = buf.toString().getBytes("iso-8859-1");
+        OutputStream os = new FileOutputStream(file);
+        for (int i = 0; i < times; ++i) {
+            os.write(bytes);
+        }
+        os.close();
+        return lines * times;
+    }
+}
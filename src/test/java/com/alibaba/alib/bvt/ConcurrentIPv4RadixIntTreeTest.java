@@ -0,0 +1,241 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.ConcurrentIPv4RadixIntTree;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentIPv4RadixIntTreeTest extends TestCase {
+    public void testCidrInclusion() throws Exception {
+        ConcurrentIPv4RadixIntTree tr = new ConcurrentIPv4RadixIntTree();
+        tr.put(0x0a000000, 0xffffff00, 42);
+        tr.put(0x0a000000, 0xff000000, 69);
+        tr.put("0.0.0.0/1", 1);
+
+        assertEquals(69, tr.selectValue(0x0a202020));
+        assertEquals(42, tr.selectValue(0x0a000020));
+        assertEquals(1, tr.selectValue(0x0b010203));
+        assertEquals(1, tr.selectValue("127.255.255.255"));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.selectValue("128.0.0.0"));
+
+        assertEquals(42, tr.remove(0x0a000000, 0xffffff00));
+        assertEquals(69, tr.selectValue(0x0a000020));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.remove(0x0a000000, 0xffffff00));
+        assertEquals(1, tr.remove(0, 0x80000000L));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.selectValue(0x0b010203));
+        assertEquals(69, tr.selectValue(0x0a000020));
+    }
+
+    public void testRemoveAndCopy() {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        tr.put(0x0a000000, 0xffffff00, 42);
+        tr.put(0x0a000000, 0xff000000, 69);
+        assertEquals(42, tr.remove(0x0a000000, 0xffffff00));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.remove(0x0a000000, 0xffffff00));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.remove(0x0b000000, 0xffffff00));
+        assertEquals(69, tr.selectValue(0x0a000020));
+        assertEquals(25, tr.size());
+
+        IPv4RadixIntTree copy = tr.copy();
+        assertEquals(9, copy.size());
+        assertEquals(69, copy.selectValue(0x0a000020));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, copy.selectValue(0x0b000020));
+    }
+
+    public void testFromTree() {
+        Random random = new Random(3);
+        IPv4RadixIntTree tr = RadixTreeTests.randomTree(random, 5000, 16);
+
+        ConcurrentIPv4RadixIntTree concurrent = new ConcurrentIPv4RadixIntTree(tr);
+        for (int i = 0; i < 100 * 1000; ++i) {
+            long key = random.nextInt() & 0xFFFFFFFFL;
+            assertEquals(tr.selectValue(key), concurrent.selectValue(key));
+        }
+    }
+
+    public void testShard() throws Exception {
+        ConcurrentIPv4RadixIntTree tr = new ConcurrentIPv4RadixIntTree();
+        tr.put("0.0.0.0/4", 1);
+        tr.put("10.0.0.0/8", 2);
+        tr.put("10.1.0.0/16", 3);
+        tr.put("11.0.0.0/8", 4);
+
+        IPv4RadixIntTree shard = tr.shard(10);
+        assertEquals(1, shard.selectValue("0.1.2.3"));
+        assertEquals(2, shard.selectValue("10.2.3.4"));
+        assertEquals(3, shard.selectValue("10.1.2.3"));
+        // only the /4 of the other shards
+        assertEquals(1, shard.selectValue("11.1.2.3"));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.shard(16).selectValue("16.1.2.3"));
+    }
+
+    /**
+     * Replaced paths are compacted away, a write does not copy the shard.
+     */
+    public void testCompaction() throws Exception {
+        ConcurrentIPv4RadixIntTree tr = new ConcurrentIPv4RadixIntTree();
+        tr.put("10.0.0.0/8", 1);
+        for (int i = 0; i < 100 * 1000; ++i) {
+            tr.put(0x0a000000L | (i & 0xff) << 8, 0xffffff00L, i);
+            assertEquals(i, tr.selectValue(0x0a000001L | (i & 0xff) << 8));
+            if (i % 3 == 0) {
+                assertEquals(i, tr.remove(0x0a000000L | (i & 0xff) << 8, 0xffffff00L));
+            }
+        }
+        assertTrue(tr.size() + " nodes", tr.size() < 4096);
+        assertEquals(1, tr.selectValue("10.255.255.255"));
+        assertEquals(99998, tr.selectValue(0x0a000001L | (99998 & 0xff) << 8));
+    }
+
+    /**
+     * A prefix shorter than /8 is changed at once for all the shards it covers: a lookup
+     * never sees an older value than a lookup before it in another shard.
+     */
+    public void testShortPrefixAtomic() throws Exception {
+        final ConcurrentIPv4RadixIntTree tr = new ConcurrentIPv4RadixIntTree();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        tr.put(0, 0, 0);
+
+        Thread[] readers = new Thread[2];
+        for (int t = 0; t < readers.length; ++t) {
+            readers[t] = new Thread() {
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            int low = tr.selectValue(0x01000001L);
+                            int high = tr.selectValue(0xfe000001L);
+                            if (high < low) {
+                                throw new AssertionError("low shard " + low + ", high shard " + high);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            };
+            readers[t].start();
+        }
+        for (int i = 1; i < 200 * 1000; ++i) {
+            tr.put(0, 0, i);
+        }
+        done.set(true);
+        for (Thread t : readers) {
+            t.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+    }
+
+    /**
+     * Writers put and remove /24 prefixes valued by their network, readers check that every
+     * value they see belongs to the looked up address; the final state is checked against a
+     * tree built in one thread.
+     */
+    public void testStress() throws Exception {
+        final int writers = 4, readers = 4, prefixes = 2000, ops = 50 * 1000;
+        final ConcurrentIPv4RadixIntTree tr = new ConcurrentIPv4RadixIntTree();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final CountDownLatch finished = new CountDownLatch(writers + readers);
+        final boolean[][] present = new boolean[writers][prefixes];
+        final long[][] networks = new long[writers][prefixes];
+
+        Random random = new Random(7);
+        Set<Long> unique = new HashSet<Long>();
+        for (int w = 0; w < writers; ++w) {
+            for (int i = 0; i < prefixes; ++i) {
+                // disjoint between writers, sharing shards
+                do {
+                    networks[w][i] = (((random.nextInt() & 0xFFFFFFL) & ~3L) | w) << 8;
+                } while (!unique.add(networks[w][i]));
+            }
+        }
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < writers; ++t) {
+            final int w = t;
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        Random random = new Random(w);
+                        for (int i = 0; i < ops; ++i) {
+                            int p = random.nextInt(prefixes);
+                            long network = networks[w][p];
+                            if (random.nextBoolean()) {
+                                tr.put(network, 0xffffff00L, (int) (network >>> 8));
+                                present[w][p] = true;
+                            } else {
+                                int removed = tr.remove(network, 0xffffff00L);
+                                assertEquals(present[w][p] ? (int) (network >>> 8) : IPv4RadixIntTree.NO_VALUE, removed);
+                                present[w][p] = false;
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            });
+        }
+        for (int t = 0; t < readers; ++t) {
+            final int r = t;
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        Random random = new Random(100 + r);
+                        while (!done.get()) {
+                            int w = random.nextInt(writers);
+                            long key = networks[w][random.nextInt(prefixes)] | random.nextInt(256);
+                            int value = tr.selectValue(key);
+                            if (value != IPv4RadixIntTree.NO_VALUE && value != (int) (key >>> 8)) {
+                                throw new AssertionError("key " + Long.toHexString(key) + ", value " + value);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            });
+        }
+
+        for (int t = 0; t < writers + readers; ++t) {
+            threads.get(t).start();
+        }
+        for (int t = 0; t < writers; ++t) {
+            threads.get(t).join();
+        }
+        done.set(true);
+        finished.await();
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+
+        IPv4RadixIntTree expected = new IPv4RadixIntTree();
+        for (int w = 0; w < writers; ++w) {
+            for (int i = 0; i < prefixes; ++i) {
+                if (present[w][i]) {
+                    expected.put(networks[w][i], 0xffffff00L, (int) (networks[w][i] >>> 8));
+                }
+            }
+        }
+        for (int w = 0; w < writers; ++w) {
+            for (int i = 0; i < prefixes; ++i) {
+                long key = networks[w][i] | 0x7f;
+                assertEquals(expected.selectValue(key), tr.selectValue(key));
+            }
+        }
+    }
+}
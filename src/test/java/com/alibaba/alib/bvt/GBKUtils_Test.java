@@ -0,0 +1,76 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.GBKUtils;
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+public class GBKUtils_Test extends TestCase {
+    static final Charset GBK = Charset.forName("GBK");
+    static final Charset GB18030 = Charset.forName("GB18030");
+
+    public void test_chinese() throws Exception {
+        byte[] gbk = Utf8Utils_Test.S0.getBytes(GBK);
+        assertEquals(Utf8Utils_Test.S0, GBKUtils.decodeGBK(gbk, 0, gbk.length));
+
+        byte[] gb18030 = Utf8Utils_Test.S0.getBytes(GB18030);
+        assertEquals(Utf8Utils_Test.S0, GBKUtils.decodeGB18030(gb18030, 0, gb18030.length));
+
+        String str = "a€😀中文é㐀";
+        byte[] bytes = str.getBytes(GB18030);
+        assertEquals(str, GBKUtils.decodeGB18030(bytes, 0, bytes.length));
+    }
+
+    public void test_all_double_bytes() throws Exception {
+        byte[] bytes = new byte[2];
+        for (int b1 = 0x80; b1 <= 0xff; ++b1) {
+            for (int b2 = 0; b2 <= 0xff; ++b2) {
+                bytes[0] = (byte) b1;
+                bytes[1] = (byte) b2;
+                assertEquals(new String(bytes, GBK), GBKUtils.decodeGBK(bytes, 0, 2));
+                assertEquals(new String(bytes, GB18030), GBKUtils.decodeGB18030(bytes, 0, 2));
+            }
+        }
+    }
+
+    public void test_all_four_bytes_bmp() throws Exception {
+        byte[] bytes = new byte[4];
+        for (int b1 = 0x81; b1 <= 0x84; ++b1) {
+            for (int b2 = 0x30; b2 <= 0x39; ++b2) {
+                for (int b3 = 0x81; b3 <= 0xfe; ++b3) {
+                    for (int b4 = 0x30; b4 <= 0x39; ++b4) {
+                        bytes[0] = (byte) b1;
+                        bytes[1] = (byte) b2;
+                        bytes[2] = (byte) b3;
+                        bytes[3] = (byte) b4;
+                        assertEquals(new String(bytes, GB18030), GBKUtils.decodeGB18030(bytes, 0, 4));
+                    }
+                }
+            }
+        }
+    }
+
+    public void test_random() throws Exception {
+        Random random = new Random(7);
+        char[] chars = new char[64];
+        for (int i = 0; i < 100 * 1000; ++i) {
+            byte[] bytes = new byte[random.nextInt(16)];
+            for (int j = 0; j < bytes.length; ++j) {
+                int r = random.nextInt(4);
+                bytes[j] = (byte) (r == 0 ? 0x30 + random.nextInt(10) : r == 1 ? random.nextInt(128) : 0x80 + random.nextInt(128));
+            }
+
+            int off = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int len = bytes.length - off;
+
+            String gbk = new String(bytes, off, len, GBK);
+            int dp = GBKUtils.decodeGBK(bytes, off, len, chars, 3);
+            assertEquals(gbk, new String(chars, 3, dp - 3));
+
+            String gb18030 = new String(bytes, off, len, GB18030);
+            dp = GBKUtils.decodeGB18030(bytes, off, len, chars, 3);
+            assertEquals(gb18030, new String(chars, 3, dp - 3));
+        }
+    }
+}
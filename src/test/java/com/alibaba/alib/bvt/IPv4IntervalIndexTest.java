@@ -0,0 +1,58 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4IntervalIndex;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+
+public class IPv4IntervalIndexTest extends TestCase {
+    public void testCidrInclusion() {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xffffff00, 42);
+        tr.put(0x0a000000, 0xff000000, 69);
+
+        IPv4IntervalIndex index = IPv4IntervalIndex.build(tr);
+        assertEquals(69, index.selectValue(0x0a202020));
+        assertEquals(42, index.selectValue(0x0a000020));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, index.selectValue(0x0b010203));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, index.selectValue(0));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, index.selectValue(0xffffffffL));
+        assertEquals(4, index.size());
+        assertEquals(0x0a000000L, index.start(1));
+    }
+
+    public void testRandom() {
+        Random random = new Random(5);
+        IPv4RadixIntTree tr = RadixTreeTests.randomTree(random, 5000, 16);
+        tr.put(0xffffffffL, 0xffffffffL, 7);
+        tr.put(0, 0xffffffffL, 8);
+
+        IPv4IntervalIndex index = IPv4IntervalIndex.build(tr);
+        for (int i = 0; i < 100 * 1000; ++i) {
+            long key = random.nextInt() & 0xFFFFFFFFL;
+            assertEquals(tr.selectValue(key), index.selectValue(key));
+        }
+        assertEquals(7, index.selectValue(0xffffffffL));
+        assertEquals(8, index.selectValue(0));
+    }
+
+    public void testNginx() throws IOException {
+        String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+        String file1 = this.getClass().getClassLoader().getResource("test/test-nginx.txt").getFile();
+        IPv4IntervalIndex index = IPv4IntervalIndex.loadFromLocalFile(file, true);
+        BufferedReader br = new BufferedReader(new FileReader(file1));
+        String l;
+        int n = 0;
+        while ((l = br.readLine()) != null) {
+            String[] c = l.split("\t", -1);
+            assertEquals("Mismatch in line #" + n
+                    , Integer.parseInt(c[1])
+                    , index.selectValue(c[0]));
+            n++;
+        }
+    }
+}
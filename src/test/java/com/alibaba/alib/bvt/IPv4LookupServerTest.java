@@ -0,0 +1,83 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4LookupClient;
+import com.alibaba.alib.net.IPv4LookupServer;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.Random;
+
+public class IPv4LookupServerTest extends TestCase {
+    public void testLookup() throws IOException {
+        String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file, true);
+
+        IPv4LookupServer server = new IPv4LookupServer(tr, 0);
+        server.start();
+        try {
+            IPv4LookupClient client = new IPv4LookupClient("127.0.0.1", server.getPort());
+
+            Random random = new Random(3);
+            int[] ips = new int[10000];
+            int[] values = new int[ips.length];
+            for (int i = 0; i < ips.length; ++i) {
+                ips[i] = (24 << 24) | random.nextInt(1 << 24);
+            }
+            client.lookup(ips, 0, ips.length, values);
+            for (int i = 0; i < ips.length; ++i) {
+                assertEquals(tr.selectValue(ips[i] & 0xFFFFFFFFL), values[i]);
+            }
+
+            IPv4RadixIntTree other = new IPv4RadixIntTree();
+            other.put("24.0.0.0/8", 42);
+            server.setTree(other);
+            assertEquals(42, client.lookup(24 << 24));
+            assertEquals(IPv4RadixIntTree.NO_VALUE, client.lookup(25 << 24));
+
+            client.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    public void testConcurrentClients() throws Exception {
+        final IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        tr.put("10.0.0.0/8", 1);
+        tr.put("10.1.0.0/16", 2);
+
+        final IPv4LookupServer server = new IPv4LookupServer(tr, 0);
+        server.start();
+        try {
+            final Throwable[] errors = new Throwable[1];
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; ++t) {
+                threads[t] = new Thread() {
+                    public void run() {
+                        try {
+                            IPv4LookupClient client = new IPv4LookupClient("127.0.0.1", server.getPort());
+                            int[] ips = {0x0a010203, 0x0a020304, 0x0b000000};
+                            int[] values = new int[3];
+                            for (int i = 0; i < 1000; ++i) {
+                                client.lookup(ips, 0, 3, values);
+                                if (values[0] != 2 || values[1] != 1 || values[2] != IPv4RadixIntTree.NO_VALUE) {
+                                    throw new IllegalStateException();
+                                }
+                            }
+                            client.close();
+                        } catch (Throwable e) {
+                            errors[0] = e;
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(errors[0]);
+        } finally {
+            server.close();
+        }
+    }
+}
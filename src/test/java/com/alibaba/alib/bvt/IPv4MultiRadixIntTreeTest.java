@@ -0,0 +1,66 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4MultiRadixIntTree;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class IPv4MultiRadixIntTreeTest extends TestCase {
+    public void testCidrInclusion() throws Exception {
+        IPv4RadixIntTree country = new IPv4RadixIntTree(100);
+        country.put(0x0a000000, 0xff000000, 69);
+        IPv4RadixIntTree asn = new IPv4RadixIntTree(100);
+        asn.put(0x0a000000, 0xffffff00, 42);
+        asn.put(0x0b000000, 0xff000000, 43);
+
+        IPv4MultiRadixIntTree multi = IPv4MultiRadixIntTree.merge(country, asn);
+        assertEquals(2, multi.tables());
+
+        int[] values = new int[2];
+        multi.selectValues(0x0a000020, values);
+        assertEquals(69, values[0]);
+        assertEquals(42, values[1]);
+
+        multi.selectValues("10.32.32.32", values);
+        assertEquals(69, values[0]);
+        assertEquals(IPv4RadixIntTree.NO_VALUE, values[1]);
+
+        multi.selectValues(0x0b010203, values);
+        assertEquals(IPv4RadixIntTree.NO_VALUE, values[0]);
+        assertEquals(43, values[1]);
+
+        assertEquals(42, multi.selectValue(0x0a000020, 1));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, multi.selectValue(0x0c000000, 0));
+    }
+
+    public void testRandom() {
+        Random random = new Random(11);
+        IPv4RadixIntTree[] trees = new IPv4RadixIntTree[5];
+        for (int t = 0; t < trees.length; ++t) {
+            trees[t] = RadixTreeTests.randomTree(random, 1000 * (t + 1), 1000);
+        }
+        trees[2].put(0, 0, 7);
+        trees[3].put(0xffffffffL, 0xffffffffL, 8);
+
+        IPv4MultiRadixIntTree multi = IPv4MultiRadixIntTree.merge(trees);
+        int[] values = new int[trees.length];
+        for (int i = 0; i < 100 * 1000; ++i) {
+            long key = i == 0 ? 0xffffffffL : random.nextInt() & 0xFFFFFFFFL;
+            multi.selectValues(key, values);
+            for (int t = 0; t < trees.length; ++t) {
+                assertEquals(trees[t].selectValue(key), values[t]);
+                assertEquals(trees[t].selectValue(key), multi.selectValue(key, t));
+            }
+        }
+    }
+
+    public void testTables() {
+        try {
+            IPv4MultiRadixIntTree.merge();
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
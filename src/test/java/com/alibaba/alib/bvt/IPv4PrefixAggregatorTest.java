@@ -0,0 +1,126 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4PrefixAggregator;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IPv4PrefixAggregatorTest extends TestCase {
+    public void testSiblings() throws Exception {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put("10.0.0.0/17", 1);
+        tr.put("10.0.128.0/17", 1);
+        tr.put("10.1.0.0/17", 2);
+
+        assertEquals("[a000000/16=1, a010000/17=2]", prefixes(tr));
+
+        IPv4PrefixAggregator.Result result = IPv4PrefixAggregator.aggregate(tr);
+        assertEquals(3, result.getPrefixesBefore());
+        assertEquals(2, result.getPrefixesAfter());
+        assertTrue(result.getNodesAfter() < result.getNodesBefore());
+        assertEquals(1, result.getTree().selectValue("10.0.200.1"));
+        assertEquals(2, result.getTree().selectValue("10.1.0.1"));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, result.getTree().selectValue("10.1.128.1"));
+    }
+
+    public void testMoreSpecifics() throws Exception {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put("10.0.0.0/8", 1);
+        tr.put("10.1.0.0/16", 1);
+        tr.put("10.1.2.0/24", 2);
+        tr.put("10.1.2.3/32", 1);
+
+        assertEquals("[a000000/8=1, a010200/24=2, a010203/32=1]", prefixes(tr));
+    }
+
+    public void testCoveredByChildren() throws Exception {
+        // a prefix fully overridden by more specifics with one value
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put("10.0.0.0/8", 1);
+        tr.put("10.0.0.0/9", 2);
+        tr.put("10.128.0.0/9", 2);
+
+        assertEquals("[a000000/8=2]", prefixes(tr));
+    }
+
+    public void testMixedCoveredByChildren() throws Exception {
+        // a prefix whose children with other values cover its whole block
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put("10.0.0.0/16", 1);
+        tr.put("10.0.0.0/17", 2);
+        tr.put("10.0.128.0/17", 3);
+        assertEquals("[a000000/17=2, a008000/17=3]", prefixes(tr));
+
+        // a child with the value of the covering prefix is dropped with it
+        tr.put("10.0.0.0/8", 2);
+        assertEquals("[a000000/8=2, a008000/17=3]", prefixes(tr));
+
+        // a prefix kept for the addresses its children don't override
+        IPv4RadixIntTree kept = new IPv4RadixIntTree(100);
+        kept.put("10.0.0.0/16", 1);
+        kept.put("10.0.0.0/17", 1);
+        kept.put("10.0.128.0/17", 1);
+        kept.put("10.0.1.0/24", 2);
+        kept.put("10.0.129.0/24", 3);
+        assertEquals("[a000000/16=1, a000100/24=2, a008100/24=3]", prefixes(kept));
+    }
+
+    public void testRandom() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; ++round) {
+            IPv4RadixIntTree tr = new IPv4RadixIntTree();
+            long base = random.nextInt() & 0xff000000L;
+            for (int i = 0; i < 2000; ++i) {
+                int cidr = 8 + random.nextInt(17);
+                long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+                long key = (base | (random.nextInt() & 0xffffffL)) & mask;
+                tr.put(key, mask, random.nextInt(3));
+            }
+
+            IPv4PrefixAggregator.Result result = IPv4PrefixAggregator.aggregate(tr);
+            IPv4RadixIntTree aggregated = result.getTree();
+            assertTrue(result.getPrefixesAfter() <= result.getPrefixesBefore());
+            for (int i = 0; i < 20 * 1000; ++i) {
+                long key = base | (random.nextInt() & 0xffffffL);
+                assertEquals(tr.selectValue(key), aggregated.selectValue(key));
+            }
+
+            // canonical: aggregating again changes nothing
+            IPv4PrefixAggregator.Result again = IPv4PrefixAggregator.aggregate(aggregated);
+            assertEquals(result.getPrefixesAfter(), again.getPrefixesAfter());
+            assertEquals(prefixes(aggregated), prefixes(again.getTree()));
+        }
+    }
+
+    public void testNginx() throws Exception {
+        String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        IPv4PrefixAggregator.Result result = IPv4PrefixAggregator.aggregate(tr);
+
+        // the sample has no same valued siblings or redundant more specifics, only
+        // 31.44.188.0/22 whose more specifics cover all of it
+        assertEquals(1001, result.getPrefixesBefore());
+        assertEquals(1000, result.getPrefixesAfter());
+        assertEquals(result.getNodesBefore(), result.getNodesAfter());
+        assertTrue(result.toString(), result.getMemoryAfter() < result.getMemoryBefore());
+
+        Random random = new Random();
+        for (int i = 0; i < 100 * 1000; ++i) {
+            long key = random.nextInt() & 0xFFFFFFFFL;
+            assertEquals(tr.selectValue(key), result.getTree().selectValue(key));
+        }
+    }
+
+    static String prefixes(IPv4RadixIntTree tr) {
+        final List<String> prefixes = new ArrayList<String>();
+        IPv4PrefixAggregator.aggregate(tr, new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                prefixes.add(Long.toHexString(prefix) + "/" + cidr + "=" + value);
+            }
+        });
+        return prefixes.toString();
+    }
+}
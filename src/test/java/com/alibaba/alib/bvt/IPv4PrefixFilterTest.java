@@ -0,0 +1,86 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4PrefixFilter;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IPv4PrefixFilterTest extends TestCase {
+    public void testCidrInclusion() {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xffffff00, 42);
+        tr.put(0x0a000000, 0xff000000, 69);
+        tr.put(0x0b010203, 0xffffffff, 7);
+
+        IPv4PrefixFilter filter = IPv4PrefixFilter.build(tr);
+        assertEquals(69, filter.selectValue(0x0a202020));
+        assertEquals(42, filter.selectValue(0x0a000020));
+        assertEquals(7, filter.selectValue(0x0b010203));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, filter.selectValue(0x0b010204));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, filter.selectValue(0x0c000000));
+        assertFalse(filter.mightContain(0x0c000000));
+        assertFalse(filter.mightContain(0xffffffffL));
+    }
+
+    public void testForEachPrefix() {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xffffff00, 42);
+        tr.put(0x0a000000, 0xff000000, 69);
+        tr.put(0xffffffffL, 0xffffffffL, 1);
+
+        final List<String> prefixes = new ArrayList<String>();
+        tr.forEachPrefix(new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                prefixes.add(Long.toHexString(prefix) + "/" + cidr + "=" + value);
+            }
+        });
+        assertEquals("[a000000/8=69, a000000/24=42, ffffffff/32=1]", prefixes.toString());
+    }
+
+    public void testRandom() {
+        for (int blockBits = 16; blockBits <= 24; blockBits += 4) {
+            Random random = new Random(blockBits);
+            IPv4RadixIntTree tr = new IPv4RadixIntTree();
+            List<Long> keys = new ArrayList<Long>();
+            for (int i = 0; i < 2000; ++i) {
+                int cidr = 8 + random.nextInt(25);
+                long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+                long key = random.nextInt() & mask;
+                tr.put(key, mask, random.nextInt(16));
+                keys.add(key | (random.nextInt() & ~mask & 0xFFFFFFFFL));
+            }
+
+            IPv4PrefixFilter filter = IPv4PrefixFilter.build(tr, blockBits);
+            for (long key : keys) {
+                assertTrue(filter.mightContain(key));
+                assertEquals(tr.selectValue(key), filter.selectValue(key));
+            }
+
+            int misses = 0, filtered = 0;
+            for (int i = 0; i < 100 * 1000; ++i) {
+                long key = random.nextInt() & 0xFFFFFFFFL;
+                int value = tr.selectValue(key);
+                assertEquals(value, filter.selectValue(key));
+                if (value == IPv4RadixIntTree.NO_VALUE) {
+                    misses++;
+                    if (!filter.mightContain(key)) {
+                        filtered++;
+                    }
+                }
+            }
+            assertTrue("filtered " + filtered + " of " + misses, filtered > misses * 9 / 10);
+        }
+    }
+
+    public void testBlockBits() {
+        try {
+            IPv4PrefixFilter.build(new IPv4RadixIntTree(), 25);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4PrefixLoader;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class IPv4PrefixLoaderTest extends TestCase {
+    public void testTsv() throws Exception {
+        IPv4RadixIntTree tr = load(new IPv4PrefixLoader(), "10.0.0.0/8\t69\r\n10.0.0.0/24\t42\r\n\n# comment\n11.1.2.3\t-5");
+        assertEquals(69, tr.selectValue("10.32.32.32"));
+        assertEquals(42, tr.selectValue("10.0.0.32"));
+        assertEquals(-5, tr.selectValue("11.1.2.3"));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.selectValue("11.1.2.4"));
+    }
+
+    public void testCsv() throws Exception {
+        IPv4PrefixLoader loader = new IPv4PrefixLoader(IPv4PrefixLoader.Format.CSV);
+        loader.setSkipHeader(true);
+        loader.setFields(0, 2);
+        IPv4RadixIntTree tr = load(loader, "network,name,id\n\"1.0.0.0/24\",\"x\",\"7\"\n1.0.1.0/24,y,8\n");
+        assertEquals(7, tr.selectValue("1.0.0.1"));
+        assertEquals(8, tr.selectValue("1.0.1.1"));
+    }
+
+    public void testNginxGeo() throws Exception {
+        IPv4PrefixLoader loader = new IPv4PrefixLoader(IPv4PrefixLoader.Format.NGINX);
+        IPv4RadixIntTree tr = load(loader, "geo $region {\n    default 0;\n    ranges;\n"
+                + "    10.0.0.0/8   1a;\n\t10.1.0.0-10.1.0.255 FF;\n}\n");
+        assertEquals(0x1a, tr.selectValue("10.2.0.0"));
+        assertEquals(0xff, tr.selectValue("10.1.0.7"));
+        assertEquals(0x1a, tr.selectValue("10.1.1.0"));
+    }
+
+    public void testRange() throws Exception {
+        IPv4RadixIntTree tr = load(new IPv4PrefixLoader(), "1.2.3.5-1.2.4.6\t3\n0.0.0.0-255.255.255.255\t1\n");
+        assertEquals(1, tr.selectValue("1.2.3.4"));
+        assertEquals(3, tr.selectValue("1.2.3.5"));
+        assertEquals(3, tr.selectValue("1.2.3.255"));
+        assertEquals(3, tr.selectValue("1.2.4.6"));
+        assertEquals(1, tr.selectValue("1.2.4.7"));
+        assertEquals(1, tr.selectValue("255.255.255.255"));
+
+        IPv4RadixIntTree single = load(new IPv4PrefixLoader(), "255.255.255.255-255.255.255.255\t3\n");
+        assertEquals(3, single.selectValue("255.255.255.255"));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, single.selectValue("255.255.255.254"));
+    }
+
+    public void testBadLines() throws Exception {
+        String text = "1.2.3.0/24\t1\n"
+                + "1.2.256.0/24\t2\n"      // octet above 255
+                + "1.2.3.0/33\t2\n"        // cidr
+                + "1.2.3\t2\n"             // 3 octets
+                + "1.2.3.4\tx\n"           // value
+                + "1.2.3.4\t-1\n"          // NO_VALUE
+                + "1.2.3.4\n"              // no value
+                + "1.2.4.0/24\t1\n";
+
+        try {
+            load(new IPv4PrefixLoader(), text);
+            fail();
+        } catch (UnknownHostException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("illegal line at offset 13 : 1.2.256.0/24"));
+        }
+
+        IPv4PrefixLoader loader = new IPv4PrefixLoader();
+        loader.setSkipBadLines(true);
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        IPv4PrefixLoader.Result result = loader.load(bytes, 0, bytes.length, tr);
+        assertEquals(8, result.getLines());
+        assertEquals(2, result.getPrefixes());
+        assertEquals(6, result.getBadLines());
+        assertEquals("[13, 28, 41, 49, 59, 70]", Arrays.toString(result.getBadLineOffsets()));
+        assertEquals(1, tr.selectValue("1.2.4.4"));
+    }
+
+    public void testLongLine() throws Exception {
+        StringBuilder text = new StringBuilder("1.2.3.0/24\t1\n");
+        text.append("# ");
+        for (int i = 0; i < 1000; ++i) {
+            text.append("long comment ");
+        }
+        text.append("\n1.2.4.0/24\t2");
+        IPv4RadixIntTree tr = loadFile(new IPv4PrefixLoader(), text.toString());
+        assertEquals(1, tr.selectValue("1.2.3.4"));
+        assertEquals(2, tr.selectValue("1.2.4.4"));
+    }
+
+    public void testNginxFile() throws Exception {
+        String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+        IPv4PrefixLoader loader = new IPv4PrefixLoader(IPv4PrefixLoader.Format.NGINX);
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        IPv4PrefixLoader.Result result = loader.load(file, tr);
+        assertEquals(1001, result.getLines());
+        assertEquals(1001, result.getPrefixes());
+        assertEquals(0, result.getBadLines());
+        assertEquals(2164, tr.size());
+    }
+
+    static IPv4RadixIntTree load(IPv4PrefixLoader loader, String text) throws UnknownHostException {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        byte[] bytes = ("##" + text).getBytes(StandardCharsets.ISO_8859_1);
+        loader.load(bytes, 2, bytes.length - 2, tr);
+        return tr;
+    }
+
+    static IPv4RadixIntTree loadFile(IPv4PrefixLoader loader, String text) throws IOException {
+        File file = File.createTempFile("ip-prefix-", ".txt");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+            out.close();
+            return loader.load(file.getPath());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import com.alibaba.alib.net.IPv4ValueStats;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class IPv4ValueStatsTest extends TestCase {
+    String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+
+    public void testCounts() throws Exception {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put("10.0.0.0/8", 1);
+        tr.put("10.1.0.0/16", 2);
+        tr.put("10.1.2.0/24", 1);
+        tr.put("192.168.1.1/32", 3);
+
+        IPv4ValueStats stats = IPv4ValueStats.build(tr);
+        assertEquals((1L << 24) - (1L << 16) + (1L << 8), stats.addressCount(1));
+        assertEquals((1L << 16) - (1L << 8), stats.addressCount(2));
+        assertEquals(1, stats.addressCount(3));
+        assertEquals((1L << 32) - (1L << 24) - 1, stats.addressCount(IPv4RadixIntTree.NO_VALUE));
+        assertEquals(0, stats.addressCount(4));
+
+        assertEquals(2, stats.prefixCount(1));
+        assertEquals(0, stats.prefixCount(4));
+        assertEquals("[1, 2, 3]", Arrays.toString(stats.values()));
+        assertEquals("[1, 2]", Arrays.toString(stats.topValues(2)));
+        assertEquals("[a000000/8, a010200/24]", prefixes(stats, 1));
+    }
+
+    public void testBruteForce() {
+        // prefixes within one /16, so its 65536 addresses can be enumerated
+        Random random = new Random(5);
+        for (int round = 0; round < 10; ++round) {
+            IPv4RadixIntTree tr = new IPv4RadixIntTree();
+            long base = random.nextInt() & 0xffff0000L;
+            for (int i = 0; i < 500; ++i) {
+                int cidr = 16 + random.nextInt(17);
+                long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+                tr.put((base | (random.nextInt() & 0xffffL)) & mask, mask, random.nextInt(20));
+            }
+
+            Map<Integer, Long> expected = new HashMap<Integer, Long>();
+            for (long ip = base; ip < base + 0x10000; ++ip) {
+                int value = tr.selectValue(ip);
+                Long count = expected.get(value);
+                expected.put(value, count == null ? 1 : count + 1);
+            }
+            Long inside = expected.remove(IPv4RadixIntTree.NO_VALUE);
+
+            IPv4ValueStats stats = IPv4ValueStats.build(tr);
+            for (Map.Entry<Integer, Long> e : expected.entrySet()) {
+                assertEquals(e.getValue().longValue(), stats.addressCount(e.getKey()));
+            }
+            assertEquals((1L << 32) - 0x10000 + (inside == null ? 0 : inside),
+                    stats.addressCount(IPv4RadixIntTree.NO_VALUE));
+
+            // top values in order of counts
+            int[] top = stats.topValues(100);
+            for (int i = 1; i < top.length; ++i) {
+                assertTrue(stats.addressCount(top[i - 1]) >= stats.addressCount(top[i]));
+            }
+        }
+    }
+
+    public void testNginx() throws Exception {
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        IPv4ValueStats stats = IPv4ValueStats.build(tr);
+
+        long total = stats.addressCount(IPv4RadixIntTree.NO_VALUE);
+        int prefixes = 0;
+        for (int value : stats.values()) {
+            total += stats.addressCount(value);
+            prefixes += stats.prefixCount(value);
+        }
+        assertEquals(1L << 32, total);
+        assertEquals(1001, prefixes);
+    }
+
+    public void testCounter() throws Exception {
+        Random random = new Random(9);
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        tr.put("10.0.0.0/8", 1);
+
+        IPv4ValueStats.Counter counter = IPv4ValueStats.track(tr);
+        assertEquals(1L << 24, counter.addressCount(1));
+        counter.put("10.1.0.0/16", 2);
+        assertEquals((1L << 24) - (1L << 16), counter.addressCount(1));
+        assertEquals(1L << 16, counter.addressCount(2));
+
+        long base = 0x0A000000L;
+        for (int batch = 0; batch < 20; ++batch) {
+            for (int i = 0; i < 200; ++i) {
+                int cidr = 6 + random.nextInt(27);
+                long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+                long key = (base | (random.nextInt() & 0x00ffffffL)) & mask;
+                if (random.nextInt(3) == 0) {
+                    counter.remove(key, mask);
+                } else {
+                    counter.put(key, mask, random.nextInt(50));
+                }
+            }
+
+            IPv4ValueStats stats = IPv4ValueStats.build(tr);
+            assertEquals(Arrays.toString(stats.values()), Arrays.toString(counter.values()));
+            assertEquals(stats.addressCount(IPv4RadixIntTree.NO_VALUE), counter.addressCount(IPv4RadixIntTree.NO_VALUE));
+            for (int value : stats.values()) {
+                assertEquals(stats.addressCount(value), counter.addressCount(value));
+                assertEquals(stats.prefixCount(value), counter.prefixCount(value));
+            }
+            assertEquals(Arrays.toString(stats.topValues(5)), Arrays.toString(counter.topValues(5)));
+        }
+    }
+
+    static String prefixes(IPv4ValueStats stats, int value) {
+        final List<String> prefixes = new ArrayList<String>();
+        stats.forEachPrefix(value, new IPv4RadixIntTree.PrefixVisitor() {
+            public void visit(long prefix, int cidr, int value) {
+                prefixes.add(Long.toHexString(prefix) + "/" + cidr);
+            }
+        });
+        return prefixes.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import com.alibaba.alib.net.IPv4VersionedRadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class IPv4VersionedRadixIntTreeTest extends TestCase {
+    public void testPutCommit() throws Exception {
+        IPv4VersionedRadixIntTree tr = new IPv4VersionedRadixIntTree(16);
+        tr.put("10.0.0.0/8", 1);
+        tr.put("10.1.0.0/16", 2);
+        assertEquals(0, tr.commit());
+
+        tr.put("10.1.0.0/16", 3);
+        tr.put("192.168.0.0/16", 4);
+        assertEquals(3, tr.selectValue(0x0A010203L));
+        assertEquals(1, tr.versions());
+        assertEquals(1, tr.remove(0x0A000000L, 0xff000000L));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.remove(0x0B000000L, 0xff000000L));
+        assertEquals(1, tr.commit());
+
+        assertEquals(1, tr.selectValue(0, "10.2.3.4"));
+        assertEquals(2, tr.selectValue(0, "10.1.2.3"));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.selectValue(0, "192.168.1.1"));
+
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.selectValue(1, "10.2.3.4"));
+        assertEquals(3, tr.selectValue(1, "10.1.2.3"));
+        assertEquals(4, tr.selectValue(1, "192.168.1.1"));
+
+        try {
+            tr.selectValue(2, "10.1.2.3");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testAddVersionShares() throws Exception {
+        IPv4RadixIntTree v0 = new IPv4RadixIntTree(100);
+        v0.put("10.0.0.0/8", 1);
+        v0.put("10.1.0.0/16", 2);
+        v0.put("172.16.0.0/12", 3);
+
+        IPv4VersionedRadixIntTree tr = new IPv4VersionedRadixIntTree(16);
+        assertEquals(0, tr.size());
+        assertEquals(0, tr.addVersion(v0));
+        int size = tr.size();
+        assertEquals(v0.copy().size(), size);
+
+        // unchanged tree adds nothing
+        assertEquals(1, tr.addVersion(v0.copy()));
+        assertEquals(size, tr.size());
+
+        // a changed /16 adds its path only
+        IPv4RadixIntTree v2 = v0.copy();
+        v2.put("10.1.0.0/16", 5);
+        assertEquals(2, tr.addVersion(v2));
+        assertEquals(size + 17, tr.size());
+        assertEquals(2, tr.selectValue(1, "10.1.0.1"));
+        assertEquals(5, tr.selectValue(2, "10.1.0.1"));
+        assertEquals(3, tr.selectValue(2, "172.16.0.1"));
+
+        tr.put("10.0.0.0/8", 7);
+        try {
+            tr.addVersion(v0);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        tr.commit();
+
+        // an empty tree
+        assertEquals(4, tr.addVersion(new IPv4RadixIntTree(16)));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.selectValue(4, "10.1.0.1"));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.remove(0x0A000000L, 0xff000000L));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.tree(4).selectValue(0x0A010001L));
+    }
+
+    public void testRandom() {
+        Random random = new Random(42);
+        int versions = 20;
+        IPv4RadixIntTree[] trees = new IPv4RadixIntTree[versions];
+        IPv4VersionedRadixIntTree tr = new IPv4VersionedRadixIntTree();
+
+        IPv4RadixIntTree current = new IPv4RadixIntTree();
+        long total = 0;
+        for (int v = 0; v < versions; ++v) {
+            // half of the versions by path copying, half from trees
+            boolean copying = v % 2 == 1;
+            current = current.copy();
+            int changes = v == 0 ? 20000 : 200;
+            for (int i = 0; i < changes; ++i) {
+                int cidr = 8 + random.nextInt(25);
+                long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+                long key = (random.nextInt() & 0xffffffffL) & mask;
+                if (v > 0 && random.nextInt(4) == 0) {
+                    int removed = current.remove(key, mask);
+                    if (copying) {
+                        assertEquals(removed, tr.remove(key, mask));
+                    }
+                } else {
+                    int value = random.nextInt(100);
+                    current.put(key, mask, value);
+                    if (copying) {
+                        tr.put(key, mask, value);
+                    }
+                }
+            }
+            trees[v] = current;
+            total += current.size();
+
+            if (copying) {
+                assertEquals(v, tr.commit());
+            } else {
+                assertEquals(v, tr.addVersion(current));
+            }
+        }
+
+        for (int i = 0; i < 100000; ++i) {
+            long key = random.nextInt() & 0xffffffffL;
+            int v = random.nextInt(versions);
+            assertEquals(trees[v].selectValue(key), tr.selectValue(v, key));
+        }
+
+        IPv4RadixIntTree copy = tr.tree(7);
+        for (int i = 0; i < 100000; ++i) {
+            long key = random.nextInt() & 0xffffffffL;
+            assertEquals(trees[7].selectValue(key), copy.selectValue(key));
+        }
+
+        // far less than separate trees
+        assertTrue(tr.size() + " nodes vs " + total, tr.size() * 4L < total);
+    }
+}
@@ -0,0 +1,65 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.Latin1Utils;
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+public class Latin1Utils_Test extends TestCase {
+    static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    static final Charset UTF8 = Charset.forName("utf8");
+
+    static final String[] VALUES = {"", "abc", "café ÿ", "中文 abc", "x😀y", "\ud800", "a\udc00", Utf8Utils_Test.S1};
+
+    public void test_all_bytes() throws Exception {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) i;
+        }
+
+        String expected = new String(bytes, LATIN1);
+        assertEquals(expected, Latin1Utils.decodeLatin1(bytes, 0, bytes.length));
+
+        char[] chars = new char[260];
+        assertEquals(258, Latin1Utils.decodeLatin1(bytes, 0, bytes.length, chars, 2));
+        assertEquals(expected, new String(chars, 2, 256));
+
+        byte[] utf8 = new byte[512];
+        int len = Latin1Utils.latin1ToUTF8(bytes, 0, bytes.length, utf8, 0);
+        assertTrue(Arrays.equals(expected.getBytes(UTF8), Arrays.copyOf(utf8, len)));
+
+        byte[] latin1 = new byte[256];
+        assertEquals(256, Latin1Utils.utf8ToLatin1(utf8, 0, len, latin1, 0));
+        assertTrue(Arrays.equals(bytes, latin1));
+    }
+
+    public void test_encode() throws Exception {
+        byte[] dest = new byte[4096];
+        for (String str : VALUES) {
+            byte[] expected = str.getBytes(LATIN1);
+
+            int len = Latin1Utils.encodeLatin1(str, dest, 0);
+            assertTrue(str, Arrays.equals(expected, Arrays.copyOf(dest, len)));
+
+            char[] chars = str.toCharArray();
+            len = Latin1Utils.encodeLatin1(chars, 0, chars.length, dest, 0);
+            assertTrue(str, Arrays.equals(expected, Arrays.copyOf(dest, len)));
+        }
+    }
+
+    public void test_utf8_to_latin1() throws Exception {
+        byte[] dest = new byte[4096];
+        for (String str : VALUES) {
+            if (str.indexOf('\ud800') >= 0 || str.indexOf('\udc00') >= 0) {
+                continue;
+            }
+            byte[] utf8 = str.getBytes(UTF8);
+            int len = Latin1Utils.utf8ToLatin1(utf8, 0, utf8.length, dest, 0);
+            assertTrue(str, Arrays.equals(str.getBytes(LATIN1), Arrays.copyOf(dest, len)));
+        }
+
+        assertEquals(-1, Latin1Utils.utf8ToLatin1(new byte[] {(byte) 0xc3}, 0, 1, dest, 0));
+        assertEquals(-1, Latin1Utils.utf8ToLatin1(new byte[] {(byte) 0xed, (byte) 0xa0, (byte) 0x80}, 0, 3, dest, 0));
+    }
+}
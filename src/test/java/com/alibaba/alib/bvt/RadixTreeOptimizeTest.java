@@ -0,0 +1,72 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.Random;
+
+public class RadixTreeOptimizeTest extends TestCase {
+    public void testCidrInclusion() {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xffffff00, 42);
+        tr.put(0x0a000000, 0xff000000, 69);
+        tr.optimize();
+
+        assertEquals(25, tr.size());
+        assertEquals(25 * 12, tr.memorySize());
+        assertEquals(69, tr.selectValue(0x0a202020));
+        assertEquals(42, tr.selectValue(0x0a000020));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, tr.selectValue(0x0b010203));
+
+        // still writable
+        tr.put(0x0b000000, 0xff000000, 7);
+        assertEquals(7, tr.selectValue(0x0b010203));
+    }
+
+    public void testRandom() {
+        Random random = new Random(19);
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        for (int i = 0; i < 20000; ++i) {
+            int cidr = random.nextInt(33);
+            long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+            tr.put(random.nextInt() & mask, mask, random.nextInt(1000));
+        }
+
+        IPv4RadixIntTree optimized = tr.copy();
+        optimized.optimize();
+        assertEquals(tr.size(), optimized.size());
+        for (int i = 0; i < 200 * 1000; ++i) {
+            long key = random.nextInt() & 0xFFFFFFFFL;
+            assertEquals(tr.selectValue(key), optimized.selectValue(key));
+        }
+
+        // idempotent
+        optimized.optimize();
+        for (int i = 0; i < 10 * 1000; ++i) {
+            long key = random.nextInt() & 0xFFFFFFFFL;
+            assertEquals(tr.selectValue(key), optimized.selectValue(key));
+        }
+    }
+
+    public void testNginx() throws Exception {
+        String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+        String file1 = this.getClass().getClassLoader().getResource("test/test-nginx.txt").getFile();
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        tr.optimize();
+        assertEquals(2164, tr.size());
+
+        BufferedReader br = new BufferedReader(new FileReader(file1));
+        String l;
+        int n = 0;
+        while ((l = br.readLine()) != null) {
+            String[] c = l.split("\t", -1);
+            assertEquals("Mismatch in line #" + n
+                    , Integer.parseInt(c[1])
+                    , tr.selectValue(c[0]));
+            n++;
+        }
+        br.close();
+    }
+}
@@ -6,6 +6,7 @@ import junit.framework.TestCase;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Random;
 
 public class RadixTreeTests extends TestCase {
     public void testCidrInclusion() {
@@ -51,4 +52,17 @@ public class RadixTreeTests extends TestCase {
         }
         assertEquals(2164, tr.size());
     }
+
+    /**
+     * @return a tree of random prefixes of /1 to /32 with values in [0, values)
+     */
+    static IPv4RadixIntTree randomTree(Random random, int prefixes, int values) {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        for (int i = 0; i < prefixes; ++i) {
+            int cidr = 1 + random.nextInt(32);
+            long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+            tr.put(random.nextInt() & mask, mask, random.nextInt(values));
+        }
+        return tr;
+    }
 }
@@ -0,0 +1,129 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import com.alibaba.alib.net.SharedIPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public class SharedIPv4RadixIntTreeTest extends TestCase {
+    private File dir;
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("shared-tree-", "");
+        assertTrue(dir.delete() && dir.mkdir());
+    }
+
+    protected void tearDown() throws Exception {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    public void testPublish() throws Exception {
+        try {
+            new SharedIPv4RadixIntTree(dir, "geo");
+            fail();
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xffffff00, 42);
+        tr.put(0x0a000000, 0xff000000, 69);
+        assertEquals(1, SharedIPv4RadixIntTree.publish(tr, dir, "geo"));
+
+        SharedIPv4RadixIntTree shared = new SharedIPv4RadixIntTree(dir, "geo");
+        assertEquals(1, shared.version());
+        assertEquals(tr.size(), shared.size());
+        assertEquals(69, shared.selectValue(0x0a202020));
+        assertEquals(42, shared.selectValue(0x0a000020));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, shared.selectValue(0x0b010203));
+
+        IPv4RadixIntTree tr2 = new IPv4RadixIntTree(100);
+        tr2.put(0x0b000000, 0xff000000, 7);
+        assertEquals(2, SharedIPv4RadixIntTree.publish(tr2, dir, "geo"));
+        assertFalse(new File(dir, "geo.1").exists());
+        assertTrue(new File(dir, "geo.2").exists());
+
+        assertEquals(7, shared.selectValue(0x0b010203));
+        assertEquals(IPv4RadixIntTree.NO_VALUE, shared.selectValue(0x0a000020));
+        assertEquals(2, shared.version());
+    }
+
+    public void testRandom() throws Exception {
+        Random random = new Random(13);
+        IPv4RadixIntTree tr = RadixTreeTests.randomTree(random, 5000, 16);
+        SharedIPv4RadixIntTree.publish(tr, dir, "random");
+
+        SharedIPv4RadixIntTree shared = new SharedIPv4RadixIntTree(dir, "random");
+        for (int i = 0; i < 100 * 1000; ++i) {
+            long key = random.nextInt() & 0xFFFFFFFFL;
+            assertEquals(tr.selectValue(key), shared.selectValue(key));
+        }
+    }
+
+    public void testCorrupted() throws Exception {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xff000000, 1);
+        SharedIPv4RadixIntTree.publish(tr, dir, "geo");
+        SharedIPv4RadixIntTree shared = new SharedIPv4RadixIntTree(dir, "geo");
+
+        // version 2 with the root's left child pointing past the nodes
+        SharedIPv4RadixIntTree.publish(tr, dir, "geo");
+        RandomAccessFile file = new RandomAccessFile(new File(dir, "geo.2"), "rw");
+        try {
+            int left = tr.size() + 1;
+            file.seek(16);
+            file.writeInt(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? left : Integer.reverseBytes(left));
+        } finally {
+            file.close();
+        }
+
+        // the reader keeps serving version 1, a new one refuses the file
+        assertEquals(1, shared.selectValue(0x0a000001));
+        assertEquals(1, shared.version());
+        try {
+            new SharedIPv4RadixIntTree(dir, "geo");
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * A tree published by another JVM is picked up by this one.
+     */
+    public void testCrossProcess() throws Exception {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xff000000, 1);
+        SharedIPv4RadixIntTree.publish(tr, dir, "geo");
+        SharedIPv4RadixIntTree shared = new SharedIPv4RadixIntTree(dir, "geo");
+        assertEquals(1, shared.selectValue(0x0a000001));
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path")
+                , SharedIPv4RadixIntTreeTest.class.getName(), dir.getPath())
+                .inheritIO()
+                .start();
+        assertEquals(0, process.waitFor());
+
+        assertEquals(2, shared.selectValue(0x0a000001));
+        assertEquals(2, shared.version());
+    }
+
+    /**
+     * Publishes a tree from another process, see {@link #testCrossProcess()}.
+     */
+    public static void main(String[] args) throws Exception {
+        IPv4RadixIntTree tr = new IPv4RadixIntTree(100);
+        tr.put(0x0a000000, 0xff000000, 2);
+        SharedIPv4RadixIntTree.publish(tr, new File(args[0]), "geo");
+    }
+}
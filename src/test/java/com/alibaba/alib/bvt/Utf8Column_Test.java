@@ -0,0 +1,85 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.Utf8Column;
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class Utf8Column_Test extends TestCase {
+    static final Charset UTF8 = Charset.forName("utf8");
+
+    public void test_encode() throws Exception {
+        String[] values = {"abc", "", "café", "中文", "😀 smile", Utf8Utils_Test.S0};
+        Utf8Column column = Utf8Column.encode(values);
+
+        assertEquals(values.length, column.size());
+        assertEquals(0, column.offset(0));
+        for (int i = 0; i < values.length; ++i) {
+            byte[] expected = values[i].getBytes(UTF8);
+            assertEquals(expected.length, column.length(i));
+            byte[] actual = Arrays.copyOfRange(column.bytes(), column.offset(i), column.offset(i + 1));
+            assertTrue("value #" + i, Arrays.equals(expected, actual));
+            assertEquals(values[i], column.get(i));
+        }
+
+        assertTrue(Arrays.equals(values, column.decode()));
+        assertTrue(Arrays.equals(values, Utf8Column.encode(Arrays.asList(values)).decode()));
+    }
+
+    public void test_decode_parallel() throws Exception {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < 50 * 1000; ++i) {
+            values.add((i % 3 == 0 ? "中文-" : "host-") + i);
+        }
+
+        Utf8Column column = Utf8Column.encode(values);
+        String[] decoded = column.decode(new ForkJoinPool(4), 1000);
+        assertEquals(values, Arrays.asList(decoded));
+        assertEquals(values, Arrays.asList(column.decodeParallel()));
+    }
+
+    public void test_wrap() throws Exception {
+        byte[] bytes = "onetwothree".getBytes(UTF8);
+        Utf8Column column = new Utf8Column(bytes, new int[] {0, 3, 6, 11}, 3);
+        assertEquals("two", column.get(1));
+        assertEquals(11, column.byteLength());
+
+        try {
+            column.get(3);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+    }
+
+    public void test_invalid() throws Exception {
+        byte[] bytes = "onetwo".getBytes(UTF8);
+        int[][] offsets = {{0, 1000000, 5}, {4, 0, 5}, {-1, 0, 5}, {0, 3, 7}};
+        for (int[] o : offsets) {
+            try {
+                new Utf8Column(bytes, o, 2);
+                fail(Arrays.toString(o));
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+
+        Utf8Column column = new Utf8Column(new byte[] {'a', (byte) 0xff}, new int[] {0, 2}, 1);
+        try {
+            column.get(0);
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        try {
+            column.decode();
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+}
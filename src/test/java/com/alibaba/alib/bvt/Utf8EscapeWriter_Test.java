@@ -0,0 +1,177 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.Utf8EscapeWriter;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+public class Utf8EscapeWriter_Test extends TestCase {
+    static final Charset UTF8 = Charset.forName("utf8");
+
+    static final char[] ALPHABET = {'a', 'Z', '0', ' ', ',', ';', '"', '\\', '/', '\n', '\r', '\t', '\b', '\f',
+            '\u0000', '\u001f', '\u007f', 'é', 'ÿ', 'ā', '中', '\ud83d', '\ude00'};
+
+    public static String escapeJSON(String str) {
+        StringBuilder buf = new StringBuilder(str.length() + 2).append('"');
+        for (int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '"':
+                    buf.append("\\\"");
+                    break;
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\b':
+                    buf.append("\\b");
+                    break;
+                case '\f':
+                    buf.append("\\f");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        buf.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        buf.append(c);
+                    }
+            }
+        }
+        return buf.append('"').toString();
+    }
+
+    public static String escapeCSV(String str, char separator) {
+        if (str.indexOf(separator) < 0 && str.indexOf('"') < 0 && str.indexOf('\r') < 0 && str.indexOf('\n') < 0) {
+            return str;
+        }
+        return '"' + str.replace("\"", "\"\"") + '"';
+    }
+
+    public void test_json() throws Exception {
+        Utf8EscapeWriter writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.JSON);
+        writer.writeRaw('{').writeString("msg").writeRaw(':').writeString("say \"hi\"\n\tto 中文")
+                .writeRaw(',').writeString("x").writeRaw(':').writeString((String) null).writeRaw('}');
+        assertEquals("{\"msg\":\"say \\\"hi\\\"\\n\\tto 中文\",\"x\":null}", writer.toString());
+
+        writer.reset();
+        writer.writeString("\u0001\\ok");
+        assertEquals("\"\\u0001\\\\ok\"", writer.toString());
+    }
+
+    public void test_csv() throws Exception {
+        Utf8EscapeWriter writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.CSV);
+        writer.writeString("plain").writeRaw(',').writeString("a,b").writeRaw(',')
+                .writeString("say \"hi\"").writeRaw(',').writeString((String) null).writeRaw(',')
+                .writeString("line\nbreak").writeRaw(',').writeString("中文").writeRaw('\n');
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",,\"line\nbreak\",中文\n", writer.toString());
+
+        writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.CSV);
+        writer.setSeparator('\t');
+        writer.writeString("a,b").writeRaw('\t').writeString("a\tb");
+        assertEquals("a,b\t\"a\tb\"", writer.toString());
+
+        try {
+            writer.setSeparator('"');
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new Utf8EscapeWriter(Utf8EscapeWriter.Mode.JSON).setSeparator(';');
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void test_random() throws Exception {
+        Random r = new Random(1);
+        Utf8EscapeWriter json = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.JSON, 0);
+        Utf8EscapeWriter csv = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.CSV, 0);
+        for (int i = 0; i < 20000; ++i) {
+            char[] chars = new char[r.nextInt(64)];
+            boolean mostlyPlain = r.nextBoolean();
+            for (int j = 0; j < chars.length; ++j) {
+                chars[j] = mostlyPlain && r.nextInt(16) != 0
+                        ? (char) ('a' + r.nextInt(26))
+                        : ALPHABET[r.nextInt(ALPHABET.length)];
+            }
+            String str = new String(chars);
+
+            json.reset().writeString(str);
+            // unpaired surrogates are '?' in both
+            assertTrue(Arrays.toString(chars), Arrays.equals(escapeJSON(str).getBytes(UTF8), json.toByteArray()));
+
+            csv.reset().writeString(str);
+            assertTrue(Arrays.toString(chars), Arrays.equals(escapeCSV(str, ',').getBytes(UTF8), csv.toByteArray()));
+
+            int off = chars.length == 0 ? 0 : r.nextInt(chars.length);
+            String sub = new String(chars, off, chars.length - off);
+            json.reset().writeString(chars, off, chars.length - off);
+            assertTrue(Arrays.equals(escapeJSON(sub).getBytes(UTF8), json.toByteArray()));
+        }
+    }
+
+    public void test_append() throws Exception {
+        // many values into a small buffer, growing it
+        Utf8EscapeWriter writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.CSV, 4);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            String value = i % 3 == 0 ? Utf8Utils_Test.S0 : i % 3 == 1 ? "v\"" + i : Utf8Utils_Test.S1;
+            writer.writeString(value).writeRaw('\n');
+            expected.append(escapeCSV(value, ',')).append('\n');
+        }
+        assertEquals(expected.toString(), writer.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        assertEquals(writer.size(), out.size());
+        assertTrue(Arrays.equals(writer.toByteArray(), out.toByteArray()));
+    }
+
+    public void test_rawSurrogate() throws Exception {
+        // encodeUTF8 writes 4 bytes for a lone low surrogate
+        Utf8EscapeWriter writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.JSON, 3);
+        writer.writeRaw("\udc00");
+        assertEquals(4, writer.size());
+        assertTrue(writer.bytes().length >= writer.size());
+        writer.writeRaw("\udc00\udc00");
+        assertTrue(writer.bytes().length >= writer.size());
+    }
+
+    public void test_tooLarge() throws Exception {
+        Utf8EscapeWriter writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.JSON, 16);
+        char[] chars = new char[4];
+        try {
+            writer.writeString(chars, 1, Integer.MAX_VALUE);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        // length * 6 escaped bytes overflows an int
+        int length = Integer.MAX_VALUE / 6 + 1;
+        if (Runtime.getRuntime().maxMemory() < length * 3L) {
+            return;
+        }
+        String str = new String(new byte[length], Charset.forName("ISO-8859-1"));
+        try {
+            writer.writeString(str);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(0, writer.size());
+    }
+}
@@ -0,0 +1,84 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.Utf8Hasher;
+import com.alibaba.alib.lang.Utf8Utils;
+import junit.framework.TestCase;
+import net.openhft.hashing.LongHashFunction;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class Utf8Hasher_Test extends TestCase {
+    static final char[] ALPHABET = {'a', 'Z', '0', ' ', 'é', 'ÿ', 'ā', '߿', 'ࠀ', '中', '￿'};
+
+    static long expected(String str, long seed) {
+        byte[] bytes = new byte[str.length() * 4];
+        int len = Utf8Utils.encodeUTF8(str, bytes, 0);
+        return LongHashFunction.xx(seed).hashBytes(bytes, 0, len);
+    }
+
+    static long expected(char[] chars, int off, int len) {
+        byte[] bytes = new byte[len * 4];
+        int n = Utf8Utils.encodeUTF8(chars, off, len, bytes, 0);
+        return LongHashFunction.xx().hashBytes(bytes, 0, n);
+    }
+
+    public void test_samples() throws Exception {
+        String[] samples = {"", "a", "abcdefg", "abcdefgh", "GET /index.html 中文",
+                "0123456789abcdef0123456789abcdef", "0123456789abcdef0123456789abcdef0",
+                "café café café café café café café",
+                "😀 emoji 😀", Utf8Utils_Test.S0, Utf8Utils_Test.S1};
+        for (String str : samples) {
+            assertEquals(str, expected(str, 0), Utf8Hasher.xx(str));
+            assertEquals(str, expected(str, 42), new Utf8Hasher(42).hash(str));
+
+            char[] chars = str.toCharArray();
+            assertEquals(str, expected(str, 0), Utf8Hasher.xx(chars, 0, chars.length));
+        }
+    }
+
+    public void test_random() throws Exception {
+        Random r = new Random(1);
+        Utf8Hasher hasher = new Utf8Hasher();
+        for (int i = 0; i < 20000; ++i) {
+            char[] chars = new char[r.nextInt(100)];
+            boolean latin1 = r.nextBoolean();
+            for (int j = 0; j < chars.length; ++j) {
+                if (latin1) {
+                    chars[j] = r.nextInt(4) == 0 ? (char) r.nextInt(256) : (char) (32 + r.nextInt(95));
+                } else if (r.nextInt(8) == 0 && j + 1 < chars.length) {
+                    chars[j++] = (char) (0xD800 + r.nextInt(0x400));
+                    chars[j] = (char) (0xDC00 + r.nextInt(0x400));
+                } else {
+                    chars[j] = ALPHABET[r.nextInt(ALPHABET.length)];
+                }
+            }
+            String str = new String(chars);
+            assertEquals(str, expected(str, 0), hasher.hash(str));
+
+            int off = chars.length == 0 ? 0 : r.nextInt(chars.length);
+            int len = chars.length - off;
+            if (len > 0 && Character.isLowSurrogate(chars[off])) {
+                off++;
+                len--;
+            }
+            assertEquals(str, expected(chars, off, len), hasher.hash(chars, off, len));
+        }
+    }
+
+    public void test_malformed() throws Exception {
+        // same bytes as the encoder: '?' for a trailing high surrogate, a lone low one is
+        // written as 4 bytes and swallows the next char
+        String[] samples = {"abc\ud83d", "abc\ude00xyz", "\ude00", "中\ude00x", "中\ud83d", "0123456789abcdef0123456789abcdef\ud83d"};
+        for (String str : samples) {
+            assertEquals(Arrays.toString(str.toCharArray()), expected(str, 0), Utf8Hasher.xx(str));
+        }
+
+        try {
+            Utf8Hasher.xx("abc\ud83dxyz");
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("encodeUTF8 error", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.Utf8Column;
+import com.alibaba.alib.lang.Utf8Slice;
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+
+public class Utf8Slice_Test extends TestCase {
+    static final Charset UTF8 = Charset.forName("utf8");
+
+    static final String[] VALUES = {"", "a", "abc", "abd", "ab", "/index.html", "/index.htm", "café", "cafe"
+            , "中文", "中国", "中", "😀", "￿", "x😀y", Utf8Utils_Test.S0, Utf8Utils_Test.S1};
+
+    public void test_ascii() throws Exception {
+        byte[] line = "GET /index.html HTTP/1.1".getBytes(UTF8);
+        Utf8Slice slice = new Utf8Slice(line, 4, 11);
+
+        assertEquals(11, slice.length());
+        assertEquals('/', slice.charAt(0));
+        assertEquals("/index.html", slice.toString());
+        assertTrue(slice.contentEquals("/index.html"));
+        assertTrue(slice.startsWith("/index"));
+        assertTrue(slice.startsWith("/index".getBytes(UTF8)));
+        assertFalse(slice.startsWith("/indexes"));
+        assertEquals("index", slice.subSequence(1, 6).toString());
+    }
+
+    public void test_compare_with_string() throws Exception {
+        Utf8Slice slice = new Utf8Slice();
+        for (String a : VALUES) {
+            slice.wrap(a.getBytes(UTF8), 0, a.getBytes(UTF8).length);
+            for (String b : VALUES) {
+                assertEquals(a + " = " + b, a.equals(b), slice.contentEquals(b));
+                assertEquals(a + " startsWith " + b, a.startsWith(b), slice.startsWith(b));
+                assertEquals(a + " <> " + b, Integer.signum(a.compareTo(b)), Integer.signum(slice.compareTo(b)));
+            }
+            assertEquals(a, slice.toString());
+            assertEquals(a.length(), slice.length());
+        }
+    }
+
+    public void test_equals_hash() throws Exception {
+        Utf8Column column = Utf8Column.encode(VALUES);
+        Utf8Column copy = Utf8Column.encode(VALUES);
+
+        Utf8Slice s1 = new Utf8Slice();
+        Utf8Slice s2 = new Utf8Slice();
+        for (int i = 0; i < VALUES.length; ++i) {
+            column.slice(i, s1);
+            for (int j = 0; j < VALUES.length; ++j) {
+                copy.slice(j, s2);
+                assertEquals(i == j, s1.equals(s2));
+                if (i == j) {
+                    assertEquals(s1.hashCode(), s2.hashCode());
+                }
+            }
+        }
+    }
+
+    public void test_compare_slices() throws Exception {
+        Utf8Slice s1 = new Utf8Slice();
+        Utf8Slice s2 = new Utf8Slice();
+        for (String a : VALUES) {
+            s1.wrap(a.getBytes(UTF8), 0, a.getBytes(UTF8).length);
+            for (String b : VALUES) {
+                s2.wrap(b.getBytes(UTF8), 0, b.getBytes(UTF8).length);
+                int expected = Integer.signum(compareCodePoints(a, b));
+                assertEquals(a + " <> " + b, expected, Integer.signum(s1.compareTo(s2)));
+            }
+        }
+    }
+
+    static int compareCodePoints(String a, String b) {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            int c1 = a.codePointAt(i), c2 = b.codePointAt(j);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+            i += Character.charCount(c1);
+            j += Character.charCount(c2);
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+}
@@ -0,0 +1,102 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.Utf8StringCache;
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+
+public class Utf8StringCache_Test extends TestCase {
+    static final Charset UTF8 = Charset.forName("utf8");
+
+    public void test_hit() throws Exception {
+        Utf8StringCache cache = new Utf8StringCache();
+
+        byte[] bytes = "GET /index.html 中文".getBytes(UTF8);
+        byte[] line = new byte[bytes.length + 10];
+        System.arraycopy(bytes, 0, line, 5, bytes.length);
+
+        String first = cache.decode(bytes);
+        String second = cache.decode(line, 5, bytes.length);
+
+        assertEquals("GET /index.html 中文", first);
+        assertSame(first, second);
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.size());
+        assertEquals(0.5D, cache.hitRate());
+    }
+
+    public void test_verify_bytes() throws Exception {
+        Utf8StringCache cache = new Utf8StringCache(1, 1, 64);
+
+        String a = cache.decode("abcdefghijk".getBytes(UTF8));
+        String b = cache.decode("abcdefghijz".getBytes(UTF8));
+
+        assertEquals("abcdefghijk", a);
+        assertEquals("abcdefghijz", b);
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(1, cache.size());
+    }
+
+    public void test_bypass() throws Exception {
+        Utf8StringCache cache = new Utf8StringCache(4, 16, 8);
+
+        byte[] bytes = Utf8Utils_Test.S0.getBytes(UTF8);
+        String first = cache.decode(bytes);
+        String second = cache.decode(bytes);
+
+        assertEquals(Utf8Utils_Test.S0, first);
+        assertNotSame(first, second);
+        assertEquals(2, cache.bypassCount());
+        assertEquals(0, cache.size());
+        assertEquals("", cache.decode(bytes, 0, 0));
+    }
+
+    public void test_malformed() throws Exception {
+        Utf8StringCache cache = new Utf8StringCache(4, 16, 8);
+
+        byte[] bytes = {'a', (byte) 0xff, 'b'};
+        assertEquals("a\ufffdb", cache.decode(bytes));
+        assertSame(cache.decode(bytes), cache.decode(bytes));
+
+        byte[] longBytes = {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', (byte) 0xc3};
+        assertEquals("abcdefgh\ufffd", cache.decode(longBytes));
+        assertEquals(1, cache.bypassCount());
+    }
+
+    public void test_concurrent() throws Exception {
+        final Utf8StringCache cache = new Utf8StringCache(4, 64, 64);
+        final String[] tokens = new String[256];
+        for (int i = 0; i < tokens.length; ++i) {
+            tokens[i] = "host-" + i + ".example.com";
+        }
+
+        final Throwable[] errors = new Throwable[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 100 * 1000; ++i) {
+                            String token = tokens[i % tokens.length];
+                            byte[] bytes = token.getBytes(UTF8);
+                            if (!token.equals(cache.decode(bytes))) {
+                                throw new IllegalStateException(token);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors[0] = e;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(errors[0]);
+        assertEquals(400 * 1000, cache.hitCount() + cache.missCount());
+    }
+}
@@ -0,0 +1,102 @@
+package com.alibaba.alib.bvt;
+
+import com.alibaba.alib.lang.Utf8Utils;
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Random;
+
+public class Utf8Utils_Decode_Test extends TestCase {
+    static final Charset UTF8 = Charset.forName("utf8");
+
+    public void test_valid() throws Exception {
+        String[] values = {"", "abc", "café", Utf8Utils_Test.S0, "x😀y", "￿"};
+        for (String str : values) {
+            byte[] bytes = str.getBytes(UTF8);
+            assertEquals(str, Utf8Utils.decodeUTF8_replace(bytes, 0, bytes.length));
+
+            char[] chars = new char[bytes.length + 2];
+            int dp = Utf8Utils.decodeUTF8_strict(bytes, 0, bytes.length, chars, 2);
+            assertEquals(str, new String(chars, 2, dp - 2));
+        }
+    }
+
+    public void test_malformed() throws Exception {
+        byte[] bytes = {'a', 'b', (byte) 0xe4, (byte) 0xb8, 'c', 'd'};
+        assertEquals("ab�cd", Utf8Utils.decodeUTF8_replace(bytes, 0, bytes.length));
+
+        char[] chars = new char[bytes.length];
+        int result = Utf8Utils.decodeUTF8_strict(bytes, 0, bytes.length, chars, 0);
+        assertTrue(result < 0);
+        assertEquals(2, Utf8Utils.malformedOffset(result));
+
+        result = Utf8Utils.decodeUTF8_strict(bytes, 1, 4, chars, 0);
+        assertEquals(2, Utf8Utils.malformedOffset(result));
+    }
+
+    public void test_random() throws Exception {
+        Random random = new Random(11);
+        CharsetDecoder decoder = UTF8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.allocate(64);
+        char[] chars = new char[64];
+
+        for (int i = 0; i < 500 * 1000; ++i) {
+            byte[] bytes = randomBytes(random);
+            int off = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int len = bytes.length - off;
+
+            String expected = new String(bytes, off, len, UTF8);
+            assertEquals(hex(bytes, off, len), expected, Utf8Utils.decodeUTF8_replace(bytes, off, len));
+
+            decoder.reset();
+            out.clear();
+            ByteBuffer in = ByteBuffer.wrap(bytes, off, len);
+            CoderResult cr = decoder.decode(in, out, true);
+            int result = Utf8Utils.decodeUTF8_strict(bytes, off, len, chars, 0);
+            if (cr.isError()) {
+                assertTrue(hex(bytes, off, len), result < 0);
+                assertEquals(hex(bytes, off, len), in.position(), Utf8Utils.malformedOffset(result));
+            } else {
+                assertEquals(hex(bytes, off, len), expected, new String(chars, 0, result));
+            }
+        }
+    }
+
+    static byte[] randomBytes(Random random) {
+        byte[] bytes = new byte[random.nextInt(12)];
+        for (int j = 0; j < bytes.length; ++j) {
+            int r = random.nextInt(6);
+            if (r == 0) {
+                bytes[j] = (byte) random.nextInt(128);
+            } else if (r < 3) {
+                bytes[j] = (byte) (0x80 + random.nextInt(64)); // continuation
+            } else {
+                bytes[j] = (byte) (0xc0 + random.nextInt(64)); // lead
+            }
+        }
+
+        if (random.nextBoolean() && bytes.length > 4) {
+            // splice in a valid sequence
+            String str = new String(Character.toChars(random.nextInt(0x110000)));
+            byte[] valid = str.getBytes(UTF8);
+            int pos = random.nextInt(bytes.length - 4);
+            System.arraycopy(valid, 0, bytes, pos, Math.min(valid.length, bytes.length - pos));
+        }
+        return bytes;
+    }
+
+    static String hex(byte[] bytes, int off, int len) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = off; i < off + len; ++i) {
+            buf.append(Integer.toHexString(bytes[i] & 0xff)).append(' ');
+        }
+        return buf.toString();
+    }
+}
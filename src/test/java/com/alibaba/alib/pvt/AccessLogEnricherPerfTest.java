@@ -0,0 +1,54 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.AccessLogEnricher;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class AccessLogEnricherPerfTest extends TestCase {
+    String prefixFile = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+    String logFile = this.getClass().getClassLoader().getResource("test/test-nginx.txt").getFile();
+
+    public void test_perf() throws Exception {
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(prefixFile, true);
+
+        File input = File.createTempFile("access", ".log");
+        input.deleteOnExit();
+        File output = File.createTempFile("access", ".out");
+        output.deleteOnExit();
+        writeScaled(input, 2000);
+
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            AccessLogEnricher enricher = new AccessLogEnricher(tr);
+            enricher.setDelimiter('\t');
+            enricher.setThreads(threads);
+            for (int i = 0; i < 3; ++i) {
+                AccessLogEnricher.Result result = enricher.enrich(input.getPath(), output.getPath());
+                System.out.println("threads " + threads + " : " + result);
+            }
+        }
+    }
+
+    void writeScaled(File file, int times) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        BufferedReader br = new BufferedReader(new FileReader(logFile));
+        String l;
+        while ((l = br.readLine()) != null) {
+            buf.append(l).append('\n');
+        }
+        br.close();
+
+        byte[] bytes = buf.toString().getBytes("iso-8859-1");
+        OutputStream os = new FileOutputStream(file);
+        for (int i = 0; i < times; ++i) {
+            os.write(bytes);
+        }
+        os.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.bvt.Utf8Utils_Test;
+import com.alibaba.alib.lang.Utf8EscapeWriter;
+import com.alibaba.alib.lang.Utf8Hasher;
+import com.alibaba.alib.lang.Utf8Utils;
+import com.alibaba.alib.net.IPv4PrefixLoader;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import com.alibaba.alib.net.IPv4VersionedRadixIntTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Hot paths whose bytes/op are checked by {@link AllocationRegressionTest}.
+ * Can also be run as a regular JMH benchmark with "-prof gc".
+ */
+@State(Scope.Thread)
+public class AllocationBenchmark {
+    String file;
+    IPv4RadixIntTree tree;
+    IPv4PrefixLoader loader;
+    IPv4VersionedRadixIntTree versioned;
+    byte[] prefixes;
+
+    long[] keys;
+    String[] ips;
+    int index;
+
+    String text;
+    char[] chars;
+    byte[] utf8;
+    byte[] bytes;
+    char[] dest;
+    Utf8EscapeWriter json;
+
+    @Setup
+    public void setup() throws IOException {
+        file = getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+        tree = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        loader = new IPv4PrefixLoader(IPv4PrefixLoader.Format.NGINX);
+        versioned = new IPv4VersionedRadixIntTree();
+        versioned.addVersion(tree);
+        versioned.put(0x0A000000L, 0xff000000L, 1);
+        versioned.commit();
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            prefixes = new byte[in.available()];
+            int len = in.read(prefixes);
+            if (len != prefixes.length) {
+                throw new IOException("short read " + len);
+            }
+        } finally {
+            in.close();
+        }
+
+        Random r = new Random(1);
+        keys = new long[1024];
+        ips = new String[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = r.nextInt() & 0xFFFFFFFFL;
+            ips[i] = (keys[i] >>> 24) + "." + ((keys[i] >>> 16) & 0xff) + "." + ((keys[i] >>> 8) & 0xff) + "." + (keys[i] & 0xff);
+        }
+
+        text = Utf8Utils_Test.S0;
+        chars = text.toCharArray();
+        utf8 = text.getBytes(StandardCharsets.UTF_8);
+        bytes = new byte[chars.length * 3];
+        dest = new char[utf8.length];
+        json = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.JSON);
+    }
+
+    private int next() {
+        return index = (index + 1) & (keys.length - 1);
+    }
+
+    @Benchmark
+    public int selectValue_long() {
+        return tree.selectValue(keys[next()]);
+    }
+
+    @Benchmark
+    public int selectValue_String() throws IOException {
+        return tree.selectValue(ips[next()]);
+    }
+
+    @Benchmark
+    public int selectValue_versioned() {
+        int i = next();
+        return versioned.selectValue(i & 1, keys[i]);
+    }
+
+    @Benchmark
+    public IPv4RadixIntTree loadFromLocalFile() throws IOException {
+        return IPv4RadixIntTree.loadFromLocalFile(file, true);
+    }
+
+    @Benchmark
+    public IPv4PrefixLoader.Result loader_bytes() throws IOException {
+        return loader.load(prefixes, 0, prefixes.length, tree);
+    }
+
+    @Benchmark
+    public int encodeUTF8_chars() {
+        return Utf8Utils.encodeUTF8(chars, 0, chars.length, bytes, 0);
+    }
+
+    @Benchmark
+    public int encodeUTF8_String() {
+        return Utf8Utils.encodeUTF8(text, bytes, 0);
+    }
+
+    @Benchmark
+    public long hashUTF8_chars() {
+        return Utf8Hasher.xx(chars, 0, chars.length);
+    }
+
+    @Benchmark
+    public long hashUTF8_String() {
+        return Utf8Hasher.xx(text);
+    }
+
+    @Benchmark
+    public int writeString_JSON() {
+        return json.reset().writeString(text).size();
+    }
+
+    @Benchmark
+    public int decodeUTF8() {
+        return Utf8Utils.decodeUTF8(utf8, 0, utf8.length, dest, 0);
+    }
+
+    @Benchmark
+    public int decodeUTF8_unsafe() {
+        return Utf8Utils.decodeUTF8_unsafe(utf8, 0, utf8.length, dest, 0);
+    }
+
+    @Benchmark
+    public String decodeUTF8_unsafe_String() {
+        return Utf8Utils.decodeUTF8_unsafe(utf8, 0, utf8.length);
+    }
+
+    @Benchmark
+    public int decodeUTF8_replace() {
+        return Utf8Utils.decodeUTF8_replace(utf8, 0, utf8.length, dest, 0);
+    }
+
+    @Benchmark
+    public String decodeUTF8_replace_String() {
+        return Utf8Utils.decodeUTF8_replace(utf8, 0, utf8.length);
+    }
+
+    @Benchmark
+    public int decodeUTF8_strict() {
+        return Utf8Utils.decodeUTF8_strict(utf8, 0, utf8.length, dest, 0);
+    }
+}
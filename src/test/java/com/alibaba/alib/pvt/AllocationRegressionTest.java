@@ -0,0 +1,100 @@
+package com.alibaba.alib.pvt;
+
+import junit.framework.TestCase;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.annotations.Mode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runs {@link AllocationBenchmark} in a forked JVM under the JMH GC profiler and fails when a
+ * benchmark allocates more bytes/op than recorded in test/allocation-baseline.properties,
+ * with 10% + 64 bytes of tolerance, as whether escape analysis removes a small object
+ * depends on the JVM.
+ *
+ * It takes about a minute and is excluded from the default build, run it with
+ * "mvn test -Pallocation". Measured values are written to target/allocation-baseline.properties;
+ * copy that file over the baseline after an intended change.
+ */
+public class AllocationRegressionTest extends TestCase {
+    static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+    public void testAllocation() throws Exception {
+        Properties baseline = new Properties();
+        InputStream in = getClass().getClassLoader().getResourceAsStream("test/allocation-baseline.properties");
+        try {
+            baseline.load(in);
+        } finally {
+            in.close();
+        }
+
+        Options options = new OptionsBuilder()
+                .include(AllocationBenchmark.class.getName() + "\\.")
+                .mode(Mode.AverageTime)
+                .forks(1)
+                .threads(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(200))
+                .measurementIterations(2)
+                .measurementTime(TimeValue.milliseconds(200))
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .build();
+
+        Map<String, Double> measured = new TreeMap<String, Double>();
+        for (RunResult run : new Runner(options).run()) {
+            String name = run.getParams().getBenchmark();
+            name = name.substring(name.lastIndexOf('.') + 1);
+            for (Map.Entry<String, Result> e : run.getSecondaryResults().entrySet()) {
+                if (e.getKey().endsWith(ALLOC_RATE_NORM)) {
+                    measured.put(name, e.getValue().getScore());
+                }
+            }
+        }
+
+        Properties record = new Properties();
+        StringBuilder failures = new StringBuilder();
+        for (Map.Entry<String, Double> e : measured.entrySet()) {
+            String name = e.getKey();
+            long bytes = Math.round(e.getValue());
+            record.setProperty(name, Long.toString(bytes));
+
+            String limit = baseline.getProperty(name);
+            if (limit == null) {
+                failures.append(name).append(" has no baseline, measured ").append(bytes).append(" bytes/op\n");
+            } else if (bytes > Long.parseLong(limit) * 11 / 10 + 64) {
+                failures.append(name).append(" allocates ").append(bytes)
+                        .append(" bytes/op, baseline ").append(limit).append('\n');
+            }
+        }
+        for (String name : baseline.stringPropertyNames()) {
+            if (!measured.containsKey(name)) {
+                failures.append(name).append(" was not measured\n");
+            }
+        }
+
+        File target = new File("target");
+        if (target.isDirectory()) {
+            OutputStream out = new FileOutputStream(new File(target, "allocation-baseline.properties"));
+            try {
+                record.store(out, "bytes/op of " + AllocationBenchmark.class.getName());
+            } finally {
+                out.close();
+            }
+        }
+
+        assertTrue(failures.toString(), failures.length() == 0);
+    }
+}
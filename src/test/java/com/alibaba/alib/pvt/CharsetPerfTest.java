@@ -0,0 +1,96 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.bvt.Utf8Utils_Test;
+import com.alibaba.alib.lang.GBKUtils;
+import com.alibaba.alib.lang.Latin1Utils;
+import junit.framework.TestCase;
+
+import java.nio.charset.Charset;
+
+public class CharsetPerfTest extends TestCase {
+    static final Charset GBK = Charset.forName("GBK");
+    static final Charset GB18030 = Charset.forName("GB18030");
+    static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    public void test_gbk() throws Exception {
+        byte[] bytes = Utf8Utils_Test.S0.getBytes(GBK);
+        for (int i = 0; i < 5; ++i) {
+            perf_gbk_jdk(bytes);
+            perf_gbk(bytes);
+        }
+    }
+
+    public void test_gb18030() throws Exception {
+        byte[] bytes = Utf8Utils_Test.S0.getBytes(GB18030);
+        for (int i = 0; i < 5; ++i) {
+            perf_gb18030_jdk(bytes);
+            perf_gb18030(bytes);
+        }
+    }
+
+    public void test_latin1() throws Exception {
+        byte[] bytes = Utf8Utils_Test.S1.getBytes(LATIN1);
+        char[] chars = new char[bytes.length];
+        for (int i = 0; i < 5; ++i) {
+            perf_latin1_jdk(bytes);
+            perf_latin1(bytes);
+            perf_latin1_chars(bytes, chars);
+        }
+    }
+
+    static void perf_gbk_jdk(byte[] bytes) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 100; ++i) {
+            new String(bytes, 0, bytes.length, GBK);
+        }
+        System.out.println("decode gbk jdk millis : " + (System.currentTimeMillis() - start));
+    }
+
+    static void perf_gbk(byte[] bytes) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 100; ++i) {
+            GBKUtils.decodeGBK(bytes, 0, bytes.length);
+        }
+        System.out.println("decode gbk millis : " + (System.currentTimeMillis() - start));
+    }
+
+    static void perf_gb18030_jdk(byte[] bytes) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 100; ++i) {
+            new String(bytes, 0, bytes.length, GB18030);
+        }
+        System.out.println("decode gb18030 jdk millis : " + (System.currentTimeMillis() - start));
+    }
+
+    static void perf_gb18030(byte[] bytes) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 100; ++i) {
+            GBKUtils.decodeGB18030(bytes, 0, bytes.length);
+        }
+        System.out.println("decode gb18030 millis : " + (System.currentTimeMillis() - start));
+    }
+
+    static void perf_latin1_jdk(byte[] bytes) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 100; ++i) {
+            new String(bytes, 0, bytes.length, LATIN1);
+        }
+        System.out.println("decode latin1 jdk millis : " + (System.currentTimeMillis() - start));
+    }
+
+    static void perf_latin1(byte[] bytes) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 100; ++i) {
+            Latin1Utils.decodeLatin1(bytes, 0, bytes.length);
+        }
+        System.out.println("decode latin1 millis : " + (System.currentTimeMillis() - start));
+    }
+
+    static void perf_latin1_chars(byte[] bytes, char[] chars) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 100; ++i) {
+            Latin1Utils.decodeLatin1(bytes, 0, bytes.length, chars, 0);
+        }
+        System.out.println("decode latin1 chars millis : " + (System.currentTimeMillis() - start));
+    }
+}
@@ -0,0 +1,88 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.ConcurrentIPv4RadixIntTree;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lookup throughput with 1 to N reader threads while a writer puts and removes prefixes.
+ */
+public class ConcurrentIPv4RadixIntTreePerfTest extends TestCase {
+    String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+
+    public void test_perf() throws Exception {
+        final ConcurrentIPv4RadixIntTree tr = new ConcurrentIPv4RadixIntTree(IPv4RadixIntTree.loadFromLocalFile(file, true));
+
+        final long[] keys = new long[1024 * 64];
+        Random r = new Random();
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = r.nextInt() & 0xFFFFFFFFL;
+        }
+
+        int cores = Math.max(4, Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < 2; ++i) {
+            for (int readers = 1; readers <= cores; readers *= 2) {
+                perf(tr, keys, readers);
+            }
+        }
+    }
+
+    static void perf(final ConcurrentIPv4RadixIntTree tr, final long[] keys, int readers) throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong lookups = new AtomicLong();
+        final AtomicLong writes = new AtomicLong();
+
+        Thread writer = new Thread() {
+            public void run() {
+                Random r = new Random();
+                long n = 0;
+                while (!done.get()) {
+                    long network = (r.nextInt() & 0xFFFFFFFFL) & 0xffffff00L;
+                    tr.put(network, 0xffffff00L, 1);
+                    tr.remove(network, 0xffffff00L);
+                    n += 2;
+                }
+                writes.addAndGet(n);
+            }
+        };
+
+        Thread[] threads = new Thread[readers];
+        for (int t = 0; t < readers; ++t) {
+            final int offset = t * 997;
+            threads[t] = new Thread() {
+                public void run() {
+                    long n = 0;
+                    int sum = 0;
+                    while (!done.get()) {
+                        for (int i = 0; i < keys.length; ++i) {
+                            sum += tr.selectValue(keys[(i + offset) & (keys.length - 1)]);
+                        }
+                        n += keys.length;
+                    }
+                    lookups.addAndGet(n + (sum & 0));
+                }
+            };
+        }
+
+        long start = System.currentTimeMillis();
+        writer.start();
+        for (Thread t : threads) {
+            t.start();
+        }
+        Thread.sleep(2000);
+        done.set(true);
+        writer.join();
+        for (Thread t : threads) {
+            t.join();
+        }
+        long millis = System.currentTimeMillis() - start;
+
+        System.out.println("readers " + readers
+                + ", lookups/s " + lookups.get() * 1000 / millis
+                + ", writes/s " + writes.get() * 1000 / millis);
+    }
+}
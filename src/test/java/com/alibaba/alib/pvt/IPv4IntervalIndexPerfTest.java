@@ -0,0 +1,69 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4IntervalIndex;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IPv4IntervalIndexPerfTest extends TestCase {
+    String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+    String file1 = this.getClass().getClassLoader().getResource("test/test-nginx.txt").getFile();
+
+    public void test_perf() throws Exception {
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        IPv4IntervalIndex index = IPv4IntervalIndex.build(tr);
+        System.out.println("tree nodes " + tr.size() + ", bytes " + tr.memorySize()
+                + "; intervals " + index.size() + ", bytes " + index.memorySize());
+
+        long[] random = new long[1024 * 64];
+        Random r = new Random();
+        for (int i = 0; i < random.length; ++i) {
+            random[i] = r.nextInt() & 0xFFFFFFFFL;
+        }
+
+        List<Long> real = new ArrayList<Long>();
+        BufferedReader br = new BufferedReader(new FileReader(file1));
+        String l;
+        while ((l = br.readLine()) != null) {
+            String[] ip = l.split("\t")[0].split("\\.");
+            real.add((Long.parseLong(ip[0]) << 24) | (Long.parseLong(ip[1]) << 16) | (Long.parseLong(ip[2]) << 8) | Long.parseLong(ip[3]));
+        }
+        br.close();
+        long[] traffic = new long[real.size()];
+        for (int i = 0; i < traffic.length; ++i) {
+            traffic[i] = real.get(i);
+        }
+
+        for (int i = 0; i < 5; ++i) {
+            perf_tree(tr, random, "random");
+            perf_index(index, random, "random");
+            perf_tree(tr, traffic, "traffic");
+            perf_index(index, traffic, "traffic");
+        }
+    }
+
+    static int perf_tree(IPv4RadixIntTree tr, long[] keys, String name) {
+        int sum = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 10; ++i) {
+            sum += tr.selectValue(keys[i % keys.length]);
+        }
+        System.out.println("tree " + name + " millis : " + (System.currentTimeMillis() - start));
+        return sum;
+    }
+
+    static int perf_index(IPv4IntervalIndex index, long[] keys, String name) {
+        int sum = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 10; ++i) {
+            sum += index.selectValue(keys[i % keys.length]);
+        }
+        System.out.println("index " + name + " millis : " + (System.currentTimeMillis() - start));
+        return sum;
+    }
+}
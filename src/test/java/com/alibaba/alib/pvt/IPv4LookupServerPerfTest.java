@@ -0,0 +1,79 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4LookupClient;
+import com.alibaba.alib.net.IPv4LookupServer;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class IPv4LookupServerPerfTest extends TestCase {
+    public void test_latency() throws Exception {
+        String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file, true);
+
+        final IPv4LookupServer server = new IPv4LookupServer(tr, 0);
+        server.start();
+        System.out.println("virtual threads : " + server.isVirtualThreads());
+        try {
+            for (int clients = 1; clients <= 16; clients *= 4) {
+                for (int i = 0; i < 3; ++i) {
+                    perf(server.getPort(), clients, 64);
+                }
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    private void perf(final int port, int clients, final int batch) throws Exception {
+        final int requests = 2000;
+        final long[][] latencies = new long[clients][requests];
+
+        Thread[] threads = new Thread[clients];
+        for (int t = 0; t < clients; ++t) {
+            final long[] nanos = latencies[t];
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        IPv4LookupClient client = new IPv4LookupClient("127.0.0.1", port);
+                        Random random = new Random();
+                        int[] ips = new int[batch];
+                        int[] values = new int[batch];
+                        for (int i = 0; i < requests; ++i) {
+                            for (int j = 0; j < batch; ++j) {
+                                ips[j] = random.nextInt();
+                            }
+                            long start = System.nanoTime();
+                            client.lookup(ips, 0, batch, values);
+                            nanos[i] = System.nanoTime() - start;
+                        }
+                        client.close();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+        }
+
+        long start = System.currentTimeMillis();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long millis = System.currentTimeMillis() - start;
+
+        long[] all = new long[clients * requests];
+        for (int t = 0; t < clients; ++t) {
+            System.arraycopy(latencies[t], 0, all, t * requests, requests);
+        }
+        Arrays.sort(all);
+        System.out.println("clients " + clients + ", batch " + batch
+                + ", p50 " + all[all.length / 2] / 1000 + "us"
+                + ", p99 " + all[all.length * 99 / 100] / 1000 + "us"
+                + ", lookups/s " + (long) all.length * batch * 1000 / Math.max(millis, 1));
+    }
+}
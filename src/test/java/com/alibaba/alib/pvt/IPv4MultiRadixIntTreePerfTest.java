@@ -0,0 +1,72 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4MultiRadixIntTree;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Four lookups in four trees vs one lookup in their merge.
+ */
+public class IPv4MultiRadixIntTreePerfTest extends TestCase {
+    String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+
+    public void test_perf() throws Exception {
+        Random r = new Random(1);
+        IPv4RadixIntTree[] trees = new IPv4RadixIntTree[4];
+        trees[0] = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        for (int t = 1; t < trees.length; ++t) {
+            trees[t] = new IPv4RadixIntTree();
+            for (int i = 0; i < 100 * 1000; ++i) {
+                int cidr = 12 + r.nextInt(13);
+                long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+                trees[t].put(r.nextInt() & mask, mask, r.nextInt(1000));
+            }
+        }
+        IPv4MultiRadixIntTree multi = IPv4MultiRadixIntTree.merge(trees);
+
+        long treeBytes = 0;
+        for (IPv4RadixIntTree tree : trees) {
+            treeBytes += tree.memorySize();
+        }
+        System.out.println("trees bytes " + treeBytes + "; merged nodes " + multi.size() + ", bytes " + multi.memorySize());
+
+        long[] keys = new long[1024 * 64];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = r.nextInt() & 0xFFFFFFFFL;
+        }
+
+        for (int i = 0; i < 3; ++i) {
+            perf_trees(trees, keys);
+            perf_multi(multi, keys);
+        }
+    }
+
+    static int perf_trees(IPv4RadixIntTree[] trees, long[] keys) {
+        int sum = 0;
+        int[] values = new int[trees.length];
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 5; ++i) {
+            long key = keys[i % keys.length];
+            for (int t = 0; t < trees.length; ++t) {
+                values[t] = trees[t].selectValue(key);
+            }
+            sum += values[0] + values[3];
+        }
+        System.out.println("trees millis : " + (System.currentTimeMillis() - start));
+        return sum;
+    }
+
+    static int perf_multi(IPv4MultiRadixIntTree multi, long[] keys) {
+        int sum = 0;
+        int[] values = new int[multi.tables()];
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 5; ++i) {
+            multi.selectValues(keys[i % keys.length], values);
+            sum += values[0] + values[3];
+        }
+        System.out.println("multi millis : " + (System.currentTimeMillis() - start));
+        return sum;
+    }
+}
@@ -0,0 +1,38 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4PrefixAggregator;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Reductions and aggregation time on the nginx sample and on a generated feed where /24s
+ * of a few values fill the /16s they belong to.
+ */
+public class IPv4PrefixAggregatorPerfTest extends TestCase {
+    String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+
+    public void test_perf() throws Exception {
+        IPv4RadixIntTree nginx = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        System.out.println("nginx : " + IPv4PrefixAggregator.aggregate(nginx));
+
+        Random r = new Random(1);
+        IPv4RadixIntTree feed = new IPv4RadixIntTree();
+        for (int i = 0; i < 2000; ++i) {
+            long block = (r.nextInt() & 0xffff0000L);
+            int value = r.nextInt(100);
+            feed.put(block, 0xffff0000L, value);
+            for (int j = 0; j < 256; ++j) {
+                // mostly the same value as the covering /16
+                feed.put(block | (j << 8), 0xffffff00L, r.nextInt(10) == 0 ? value + 1 : value);
+            }
+        }
+
+        for (int i = 0; i < 5; ++i) {
+            long start = System.currentTimeMillis();
+            IPv4PrefixAggregator.Result result = IPv4PrefixAggregator.aggregate(feed);
+            System.out.println("feed : " + result + ", millis : " + (System.currentTimeMillis() - start));
+        }
+    }
+}
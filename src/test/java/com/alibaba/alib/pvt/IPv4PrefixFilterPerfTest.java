@@ -0,0 +1,62 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4PrefixFilter;
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Blocklist-like workload: 50k long prefixes and random keys, almost all of them misses.
+ */
+public class IPv4PrefixFilterPerfTest extends TestCase {
+    public void test_perf() throws Exception {
+        Random r = new Random(1);
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        for (int i = 0; i < 50 * 1000; ++i) {
+            int cidr = 24 + r.nextInt(9);
+            long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+            tr.put(r.nextInt() & mask, mask, 1);
+        }
+
+        long[] keys = new long[1024 * 64];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = r.nextInt() & 0xFFFFFFFFL;
+        }
+
+        IPv4PrefixFilter filter16 = IPv4PrefixFilter.build(tr, 16);
+        IPv4PrefixFilter filter24 = IPv4PrefixFilter.build(tr, 24);
+        System.out.println("tree nodes " + tr.size() + ", bytes " + tr.memorySize()
+                + "; filter/16 bytes " + filter16.memorySize() + "; filter/24 bytes " + filter24.memorySize());
+
+        for (int i = 0; i < 5; ++i) {
+            perf_tree(tr, keys);
+            perf_filter(filter16, keys);
+            perf_filter(filter24, keys);
+        }
+    }
+
+    static int perf_tree(IPv4RadixIntTree tr, long[] keys) {
+        int hits = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 10; ++i) {
+            if (tr.selectValue(keys[i % keys.length]) != IPv4RadixIntTree.NO_VALUE) {
+                hits++;
+            }
+        }
+        System.out.println("tree millis : " + (System.currentTimeMillis() - start) + ", hits " + hits);
+        return hits;
+    }
+
+    static int perf_filter(IPv4PrefixFilter filter, long[] keys) {
+        int hits = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 10; ++i) {
+            if (filter.selectValue(keys[i % keys.length]) != IPv4RadixIntTree.NO_VALUE) {
+                hits++;
+            }
+        }
+        System.out.println("filter/" + filter.getBlockBits() + " millis : " + (System.currentTimeMillis() - start) + ", hits " + hits);
+        return hits;
+    }
+}
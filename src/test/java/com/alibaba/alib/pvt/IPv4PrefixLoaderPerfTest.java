@@ -0,0 +1,39 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Load time of a generated 1M line prefix file, ip-prefix-base.txt is not in the repository.
+ */
+public class IPv4PrefixLoaderPerfTest extends TestCase {
+    public void test_perf() throws Exception {
+        File file = File.createTempFile("ip-prefix-", ".txt");
+        file.deleteOnExit();
+
+        Random r = new Random(1);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        for (int i = 0; i < 1000 * 1000; ++i) {
+            int cidr = 8 + r.nextInt(25);
+            long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+            long ip = r.nextInt() & mask;
+            String line = (ip >>> 24) + "." + ((ip >>> 16) & 0xff) + "." + ((ip >>> 8) & 0xff) + "." + (ip & 0xff)
+                    + "/" + cidr + "\t" + r.nextInt(100000) + "\n";
+            out.write(line.getBytes("iso-8859-1"));
+        }
+        out.close();
+
+        for (int i = 0; i < 10; ++i) {
+            long start = System.currentTimeMillis();
+            IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file.getPath(), false);
+            long millis = System.currentTimeMillis() - start;
+            System.out.println("nodes " + tr.size() + ", millis : " + millis);
+        }
+    }
+}
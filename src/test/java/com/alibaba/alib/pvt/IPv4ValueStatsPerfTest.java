@@ -0,0 +1,50 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import com.alibaba.alib.net.IPv4ValueStats;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Statistics of a generated 500k prefix tree of 1000 values, built in one pass and kept by
+ * a counter, against plain puts.
+ */
+public class IPv4ValueStatsPerfTest extends TestCase {
+    public void test_perf() throws Exception {
+        long[] keys = new long[500 * 1000];
+        long[] masks = new long[keys.length];
+        int[] values = new int[keys.length];
+        Random r = new Random(1);
+        for (int i = 0; i < keys.length; ++i) {
+            int cidr = 8 + r.nextInt(25);
+            masks[i] = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+            keys[i] = (r.nextInt() & 0xffffffffL) & masks[i];
+            values[i] = r.nextInt(1000);
+        }
+
+        for (int n = 0; n < 3; ++n) {
+            long start = System.currentTimeMillis();
+            IPv4RadixIntTree tree = new IPv4RadixIntTree(1024 * 1024);
+            for (int i = 0; i < keys.length; ++i) {
+                tree.put(keys[i], masks[i], values[i]);
+            }
+            System.out.println("put millis : " + (System.currentTimeMillis() - start));
+
+            start = System.currentTimeMillis();
+            IPv4ValueStats.Counter counter = IPv4ValueStats.track(new IPv4RadixIntTree(1024 * 1024));
+            for (int i = 0; i < keys.length; ++i) {
+                counter.put(keys[i], masks[i], values[i]);
+            }
+            System.out.println("counter put millis : " + (System.currentTimeMillis() - start));
+
+            start = System.currentTimeMillis();
+            IPv4ValueStats stats = IPv4ValueStats.build(tree);
+            int[] top = stats.topValues(3);
+            System.out.println("build millis : " + (System.currentTimeMillis() - start)
+                    + ", nodes : " + tree.size() + ", top : " + Arrays.toString(top)
+                    + ", addresses : " + stats.addressCount(top[0]) + ", " + counter.addressCount(top[0]));
+        }
+    }
+}
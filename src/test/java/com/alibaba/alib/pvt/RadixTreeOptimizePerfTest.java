@@ -0,0 +1,67 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Lookups before and after {@link IPv4RadixIntTree#optimize()}, on a 1M prefix tree filled
+ * in random order, with random keys and with the keys of test-nginx.txt.
+ */
+public class RadixTreeOptimizePerfTest extends TestCase {
+    String file1 = this.getClass().getClassLoader().getResource("test/test-nginx.txt").getFile();
+
+    public void test_perf() throws Exception {
+        Random r = new Random(1);
+        IPv4RadixIntTree tr = new IPv4RadixIntTree();
+        for (int i = 0; i < 1000 * 1000; ++i) {
+            int cidr = 8 + r.nextInt(25);
+            long mask = ((1L << (32 - cidr)) - 1L) ^ 0xffffffffL;
+            tr.put(r.nextInt() & mask, mask, r.nextInt(1000));
+        }
+        IPv4RadixIntTree optimized = tr.copy();
+        long start = System.currentTimeMillis();
+        optimized.optimize();
+        System.out.println("nodes " + tr.size() + ", optimize millis : " + (System.currentTimeMillis() - start));
+
+        long[] random = new long[1024 * 1024];
+        for (int i = 0; i < random.length; ++i) {
+            random[i] = r.nextInt() & 0xFFFFFFFFL;
+        }
+
+        List<Long> real = new ArrayList<Long>();
+        BufferedReader br = new BufferedReader(new FileReader(file1));
+        String l;
+        while ((l = br.readLine()) != null) {
+            String[] ip = l.split("\t")[0].split("\\.");
+            real.add((Long.parseLong(ip[0]) << 24) | (Long.parseLong(ip[1]) << 16) | (Long.parseLong(ip[2]) << 8) | Long.parseLong(ip[3]));
+        }
+        br.close();
+        long[] traffic = new long[real.size()];
+        for (int i = 0; i < traffic.length; ++i) {
+            traffic[i] = real.get(i);
+        }
+
+        for (int i = 0; i < 3; ++i) {
+            perf(tr, random, "random, insertion order");
+            perf(optimized, random, "random, optimized");
+            perf(tr, traffic, "traffic, insertion order");
+            perf(optimized, traffic, "traffic, optimized");
+        }
+    }
+
+    static int perf(IPv4RadixIntTree tr, long[] keys, String name) {
+        int sum = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 5; ++i) {
+            sum += tr.selectValue(keys[i % keys.length]);
+        }
+        System.out.println(name + " millis : " + (System.currentTimeMillis() - start));
+        return sum;
+    }
+}
@@ -0,0 +1,78 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.net.IPv4RadixIntTree;
+import com.alibaba.alib.net.SharedIPv4RadixIntTree;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Lookups in a heap tree vs the same tree mapped from /dev/shm, and the time from
+ * {@link SharedIPv4RadixIntTree#publish} to the first lookup answered by the new version.
+ */
+public class SharedIPv4RadixIntTreePerfTest extends TestCase {
+    String file = this.getClass().getClassLoader().getResource("test/ip-prefix-nginx.txt").getFile();
+
+    public void test_perf() throws Exception {
+        File dir = new File(SharedIPv4RadixIntTree.DEFAULT_DIR);
+        if (!dir.isDirectory()) {
+            dir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        String name = "alib-perf-" + System.nanoTime();
+
+        IPv4RadixIntTree tr = IPv4RadixIntTree.loadFromLocalFile(file, true);
+        SharedIPv4RadixIntTree.publish(tr, dir, name);
+        SharedIPv4RadixIntTree shared = new SharedIPv4RadixIntTree(dir, name);
+
+        try {
+            long[] keys = new long[1024 * 64];
+            Random r = new Random();
+            for (int i = 0; i < keys.length; ++i) {
+                keys[i] = r.nextInt() & 0xFFFFFFFFL;
+            }
+
+            for (int i = 0; i < 5; ++i) {
+                perf_tree(tr, keys);
+                perf_shared(shared, keys);
+            }
+
+            for (int i = 0; i < 5; ++i) {
+                long start = System.nanoTime();
+                long version = SharedIPv4RadixIntTree.publish(tr, dir, name);
+                long published = System.nanoTime();
+                shared.selectValue(keys[0]);
+                long swapped = System.nanoTime();
+                assertEquals(version, shared.version());
+                System.out.println("publish micros : " + (published - start) / 1000
+                        + ", swap micros : " + (swapped - published) / 1000);
+            }
+        } finally {
+            for (File f : dir.listFiles()) {
+                if (f.getName().startsWith(name)) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    static int perf_tree(IPv4RadixIntTree tr, long[] keys) {
+        int sum = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 10; ++i) {
+            sum += tr.selectValue(keys[i % keys.length]);
+        }
+        System.out.println("heap millis : " + (System.currentTimeMillis() - start));
+        return sum;
+    }
+
+    static int perf_shared(SharedIPv4RadixIntTree shared, long[] keys) {
+        int sum = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000 * 1000 * 10; ++i) {
+            sum += shared.selectValue(keys[i % keys.length]);
+        }
+        System.out.println("shared millis : " + (System.currentTimeMillis() - start));
+        return sum;
+    }
+}
@@ -0,0 +1,94 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.bvt.Utf8EscapeWriter_Test;
+import com.alibaba.alib.bvt.Utf8Utils_Test;
+import com.alibaba.alib.lang.Utf8EscapeWriter;
+import com.alibaba.alib.lang.Utf8Utils;
+import junit.framework.TestCase;
+
+public class Utf8EscapeWriterPerfTest extends TestCase {
+    static final String[] RECORD = {
+            "2024-05-01T12:00:00.123+08:00", "GET", "/api/v1/items?id=10086&name=\"phone\"",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko)",
+            "user said: \"hello\"\n\tsecond line", "中文标题，测试"};
+
+    public void test_json_record() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            perf_json_escape_encode(RECORD, 1000 * 200);
+            perf_json_writer(RECORD, 1000 * 200);
+        }
+    }
+
+    public void test_json_S0_S1() throws Exception {
+        String[] values = {Utf8Utils_Test.S0, Utf8Utils_Test.S1};
+        for (int i = 0; i < 5; ++i) {
+            perf_json_escape_encode(values, 1000 * 20);
+            perf_json_writer(values, 1000 * 20);
+        }
+    }
+
+    public void test_csv_record() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            perf_csv_escape_encode(RECORD, 1000 * 200);
+            perf_csv_writer(RECORD, 1000 * 200);
+        }
+    }
+
+    static void perf_json_escape_encode(String[] values, int count) {
+        byte[] bytes = new byte[1024 * 64];
+        long start = System.currentTimeMillis();
+        long total = 0;
+        for (int i = 0; i < count; ++i) {
+            int dp = 0;
+            for (String value : values) {
+                dp = Utf8Utils.encodeUTF8(Utf8EscapeWriter_Test.escapeJSON(value), bytes, dp);
+                bytes[dp++] = ',';
+            }
+            total += dp;
+        }
+        System.out.println("json escape + encode millis : " + (System.currentTimeMillis() - start) + ", " + total);
+    }
+
+    static void perf_json_writer(String[] values, int count) {
+        Utf8EscapeWriter writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.JSON, 1024 * 64);
+        long start = System.currentTimeMillis();
+        long total = 0;
+        for (int i = 0; i < count; ++i) {
+            writer.reset();
+            for (String value : values) {
+                writer.writeString(value).writeRaw(',');
+            }
+            total += writer.size();
+        }
+        System.out.println("json writer millis : " + (System.currentTimeMillis() - start) + ", " + total);
+    }
+
+    static void perf_csv_escape_encode(String[] values, int count) {
+        byte[] bytes = new byte[1024 * 64];
+        long start = System.currentTimeMillis();
+        long total = 0;
+        for (int i = 0; i < count; ++i) {
+            int dp = 0;
+            for (String value : values) {
+                dp = Utf8Utils.encodeUTF8(Utf8EscapeWriter_Test.escapeCSV(value, ','), bytes, dp);
+                bytes[dp++] = ',';
+            }
+            total += dp;
+        }
+        System.out.println("csv escape + encode millis : " + (System.currentTimeMillis() - start) + ", " + total);
+    }
+
+    static void perf_csv_writer(String[] values, int count) {
+        Utf8EscapeWriter writer = new Utf8EscapeWriter(Utf8EscapeWriter.Mode.CSV, 1024 * 64);
+        long start = System.currentTimeMillis();
+        long total = 0;
+        for (int i = 0; i < count; ++i) {
+            writer.reset();
+            for (String value : values) {
+                writer.writeString(value).writeRaw(',');
+            }
+            total += writer.size();
+        }
+        System.out.println("csv writer millis : " + (System.currentTimeMillis() - start) + ", " + total);
+    }
+}
@@ -0,0 +1,52 @@
+package com.alibaba.alib.pvt;
+
+import com.alibaba.alib.bvt.Utf8Utils_Test;
+import com.alibaba.alib.lang.Utf8Hasher;
+import com.alibaba.alib.lang.Utf8Utils;
+import junit.framework.TestCase;
+import net.openhft.hashing.LongHashFunction;
+
+public class Utf8HasherPerfTest extends TestCase {
+    public void test_S0() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            perf_encode_hash(Utf8Utils_Test.S0, 1000 * 100);
+            perf_hash(Utf8Utils_Test.S0, 1000 * 100);
+        }
+    }
+
+    public void test_S1() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            perf_encode_hash(Utf8Utils_Test.S1, 1000 * 100);
+            perf_hash(Utf8Utils_Test.S1, 1000 * 100);
+        }
+    }
+
+    public void test_key() throws Exception {
+        String key = "user:10086:cart:中文";
+        for (int i = 0; i < 5; ++i) {
+            perf_encode_hash(key, 1000 * 1000 * 10);
+            perf_hash(key, 1000 * 1000 * 10);
+        }
+    }
+
+    static void perf_encode_hash(String str, int count) {
+        LongHashFunction xx = LongHashFunction.xx();
+        long start = System.currentTimeMillis();
+        long h = 0;
+        for (int i = 0; i < count; ++i) {
+            byte[] bytes = new byte[str.length() * 3];
+            int len = Utf8Utils.encodeUTF8(str, bytes, 0);
+            h += xx.hashBytes(bytes, 0, len);
+        }
+        System.out.println("encode + xx millis : " + (System.currentTimeMillis() - start) + ", " + h);
+    }
+
+    static void perf_hash(String str, int count) {
+        long start = System.currentTimeMillis();
+        long h = 0;
+        for (int i = 0; i < count; ++i) {
+            h += Utf8Hasher.xx(str);
+        }
+        System.out.println("Utf8Hasher.xx millis : " + (System.currentTimeMillis() - start) + ", " + h);
+    }
+}